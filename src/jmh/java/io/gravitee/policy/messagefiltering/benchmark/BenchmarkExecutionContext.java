@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.benchmark;
+
+import io.gravitee.el.TemplateEngine;
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.context.MessageRequest;
+import io.gravitee.gateway.reactive.api.context.MessageResponse;
+import io.gravitee.gateway.reactive.api.el.EvaluableMessage;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.core.Maybe;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.Getter;
+
+/**
+ * Minimal {@link MessageExecutionContext} used by benchmarks. It binds messages to a real template engine through the gateway
+ * {@link EvaluableMessage} like the gateway does, and captures the message transformers registered by the policy so benchmarks can push
+ * messages through them.
+ *
+ * @author GraviteeSource Team
+ */
+public class BenchmarkExecutionContext {
+
+    @Getter
+    private final MessageExecutionContext context;
+
+    @Getter
+    private FlowableTransformer<Message, Message> requestTransformer;
+
+    @Getter
+    private FlowableTransformer<Message, Message> responseTransformer;
+
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final TemplateEngine templateEngine = TemplateEngine.templateEngine();
+
+    public BenchmarkExecutionContext(final Map<String, Object> variables) {
+        variables.forEach((name, value) -> templateEngine.getTemplateContext().setVariable(name, value));
+        MessageRequest request = proxy(MessageRequest.class, transformer -> requestTransformer = transformer);
+        MessageResponse response = proxy(MessageResponse.class, transformer -> responseTransformer = transformer);
+        this.context =
+            (MessageExecutionContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class[] { MessageExecutionContext.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "request":
+                            return request;
+                        case "response":
+                            return response;
+                        case "getTemplateEngine":
+                            return args == null || args.length == 0 ? templateEngine : messageTemplateEngine((Message) args[0]);
+                        case "getAttribute":
+                            return attributes.get((String) args[0]);
+                        case "setAttribute":
+                        case "putAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        case "getAttributes":
+                            return attributes;
+                        default:
+                            return null;
+                    }
+                }
+            );
+    }
+
+    private TemplateEngine messageTemplateEngine(final Message message) {
+        TemplateEngine engine = TemplateEngine.templateEngine();
+        engine.getTemplateContext().setVariable(MessageExecutionContext.TEMPLATE_ATTRIBUTE_MESSAGE, new EvaluableMessage(message));
+        return engine;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(final Class<T> type, final Consumer<FlowableTransformer<Message, Message>> onMessages) {
+        return (T) Proxy.newProxyInstance(
+            BenchmarkExecutionContext.class.getClassLoader(),
+            new Class[] { type },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "onMessages":
+                        onMessages.accept((FlowableTransformer<Message, Message>) args[0]);
+                        return Completable.complete();
+                    case "onMessage":
+                        Function<Message, Maybe<Message>> onMessage = (Function<Message, Maybe<Message>>) args[0];
+                        onMessages.accept(upstream -> upstream.concatMapMaybe(onMessage::apply));
+                        return Completable.complete();
+                    default:
+                        return null;
+                }
+            }
+        );
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.benchmark;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.gateway.reactive.api.message.DefaultMessage;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.MessageFilteringPolicy;
+import io.gravitee.policy.messagefiltering.configuration.FilterEngine;
+import io.gravitee.policy.messagefiltering.configuration.MessageFilteringPolicyConfiguration;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost per message of {@link MessageFilteringPolicy} on realistic message flows.
+ * <p>
+ * Each invocation pushes {@link #MESSAGES} messages, half of them matching the filter, through the transformer registered by the policy on
+ * <code>onMessageRequest</code> or <code>onMessageResponse</code>. Run it with <code>mvn -Pbenchmark verify</code>: throughput (ops/s) and
+ * latency percentiles (p99) are reported per message, and the GC profiler reports the bytes allocated per message (<code>gc.alloc.rate.norm</code>).
+ *
+ * @author GraviteeSource Team
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageFilteringPolicyBenchmark {
+
+    static final int MESSAGES = 100;
+
+    public enum Scenario {
+        /**
+         * Filter on a message header only.
+         */
+        HEADER("{#message.headers['X-Type'][0] == 'order'}"),
+
+        /**
+         * Filter on a field of the JSON content.
+         */
+        JSON("{#jsonPath(#message.content, '$.type') == 'order'}"),
+
+        /**
+         * Filter resolved from a context variable, requiring a double evaluation of the configured filter.
+         */
+        DYNAMIC("{#dynamicFilter}");
+
+        private final String filter;
+
+        Scenario(final String filter) {
+            this.filter = filter;
+        }
+    }
+
+    @Param
+    public Scenario scenario;
+
+    @Param({ "EL", "NATIVE" })
+    public FilterEngine engine;
+
+    @Param({ "1024", "65536", "1048576" })
+    public int payloadSize;
+
+    @Param({ "REQUEST", "RESPONSE" })
+    public String phase;
+
+    private FlowableTransformer<Message, Message> transformer;
+    private Message[] messages;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        MessageFilteringPolicyConfiguration configuration = new MessageFilteringPolicyConfiguration();
+        configuration.setFilter(scenario.filter);
+        configuration.setEngine(engine);
+        configuration.setAckFilteredMessage(true);
+
+        BenchmarkExecutionContext ctx = new BenchmarkExecutionContext(
+            Map.of("dynamicFilter", "{#jsonPath(#message.content, '$.type') == 'order' && #message.headers['X-Type'][0] == 'order'}")
+        );
+        MessageFilteringPolicy policy = new MessageFilteringPolicy(configuration);
+        if ("REQUEST".equals(phase)) {
+            policy.onMessageRequest(ctx.getContext()).blockingAwait();
+            transformer = ctx.getRequestTransformer();
+        } else {
+            policy.onMessageResponse(ctx.getContext()).blockingAwait();
+            transformer = ctx.getResponseTransformer();
+        }
+
+        messages = new Message[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            String type = i % 2 == 0 ? "order" : "invoice";
+            DefaultMessage message = DefaultMessage.builder().id(String.valueOf(i)).content(Buffer.buffer(payload(type, payloadSize))).build();
+            message.headers().set("X-Type", type);
+            messages[i] = message;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void filter(final Blackhole blackhole) {
+        Flowable.fromArray(messages).compose(transformer).blockingSubscribe(blackhole::consume);
+    }
+
+    static String payload(final String type, final int size) {
+        StringBuilder payload = new StringBuilder(size + 64);
+        payload.append("{\"type\":\"").append(type).append("\",\"items\":[");
+        int item = 0;
+        while (payload.length() < size - 64) {
+            if (item > 0) {
+                payload.append(',');
+            }
+            payload.append("{\"sku\":\"sku-").append(item).append("\",\"quantity\":").append(item % 10).append('}');
+            item++;
+        }
+        return payload.append("],\"status\":\"created\"}").toString();
+    }
+}
@@ -18,19 +18,117 @@ package io.gravitee.policy.messagefiltering;
 import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
 import io.gravitee.gateway.reactive.api.message.Message;
 import io.gravitee.gateway.reactive.api.policy.Policy;
+import io.gravitee.policy.messagefiltering.ack.BatchedAcknowledger;
+import io.gravitee.policy.messagefiltering.batch.MicroBatcher;
+import io.gravitee.policy.messagefiltering.binary.BinarySchema;
+import io.gravitee.policy.messagefiltering.budget.EvaluationBreaker;
+import io.gravitee.policy.messagefiltering.configuration.BinaryContentConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.MemoizationConfiguration;
 import io.gravitee.policy.messagefiltering.configuration.MessageFilteringPolicyConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.MicroBatchConfiguration;
+import io.gravitee.policy.messagefiltering.content.ContentMatcher;
+import io.gravitee.policy.messagefiltering.dedup.DeduplicationFilter;
+import io.gravitee.policy.messagefiltering.filter.AdaptiveFilter;
+import io.gravitee.policy.messagefiltering.filter.CompiledFilter;
+import io.gravitee.policy.messagefiltering.filter.CompiledFilterCache;
+import io.gravitee.policy.messagefiltering.filter.MessageBatchContext;
+import io.gravitee.policy.messagefiltering.filter.MessageFilter;
+import io.gravitee.policy.messagefiltering.filter.SharedCompiledFilters;
+import io.gravitee.policy.messagefiltering.json.ContentFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import io.gravitee.policy.messagefiltering.membership.MembershipFilter;
+import io.gravitee.policy.messagefiltering.metrics.FilterHealth;
+import io.gravitee.policy.messagefiltering.metrics.MemoizationMetrics;
+import io.gravitee.policy.messagefiltering.metrics.MessageFilteringMetrics;
+import io.gravitee.policy.messagefiltering.metrics.PhaseMetrics;
+import io.gravitee.policy.messagefiltering.sampling.Samplers;
 import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Maybe;
-import lombok.AllArgsConstructor;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.rxjava3.core.RxHelper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * @author David BRASSELY (david.brassely at graviteesource.com)
  * @author GraviteeSource Team
  */
-@AllArgsConstructor
 public class MessageFilteringPolicy implements Policy {
 
+    private static final AtomicLong BINARY_PROFILES = new AtomicLong();
+    private static final MessageFilter PASS = (ctx, message) -> true;
+
     private final MessageFilteringPolicyConfiguration configuration;
+    private final CompiledFilterCache compiledFilters;
+    private final MessageFilteringMetrics metrics;
+    private final MembershipFilter membershipFilter;
+    private final ContentMatcher contentMatcher;
+    private final EvaluationBreaker breaker;
+    private volatile AdaptiveFilter adaptiveFilter;
+
+    public MessageFilteringPolicy(final MessageFilteringPolicyConfiguration configuration) {
+        this.configuration = configuration;
+        MemoizationConfiguration memoization = configuration.getMemoization();
+        MemoizationMetrics memoizationMetrics = memoization != null && memoization.isEnabled() ? new MemoizationMetrics() : null;
+        Function<List<JsonFieldPath>, ContentFieldExtractor> contentExtractors = contentExtractors(configuration.getBinaryContent());
+        // Extractors of binary content are bound to the schema of this instance, so such filters are only shared by its connections
+        String profile = contentExtractors == null
+            ? String.valueOf(configuration.getEngine())
+            : "BINARY-" + BINARY_PROFILES.incrementAndGet();
+        this.compiledFilters =
+            new CompiledFilterCache(filter -> {
+                CompiledFilter compiledFilter = SharedCompiledFilters.get(
+                    profile,
+                    filter,
+                    f -> CompiledFilter.compile(f, configuration.getEngine(), contentExtractors)
+                );
+                return memoizationMetrics != null ? compiledFilter.memoized(memoization.getMaxEntries(), memoizationMetrics) : compiledFilter;
+            });
+        this.breaker =
+            configuration.getEvaluationBudget() != null && configuration.getEvaluationBudget().isEnabled()
+                ? new EvaluationBreaker(configuration.getEvaluationBudget(), describeFilter(configuration))
+                : null;
+        this.metrics = new MessageFilteringMetrics(compiledFilters, breaker, memoizationMetrics);
+        this.membershipFilter =
+            configuration.getMembership() != null && configuration.getMembership().isEnabled()
+                ? new MembershipFilter(configuration.getMembership())
+                : null;
+        this.contentMatcher =
+            configuration.getContentMatch() != null && configuration.getContentMatch().isEnabled()
+                ? new ContentMatcher(configuration.getContentMatch())
+                : null;
+    }
+
+    private static Function<List<JsonFieldPath>, ContentFieldExtractor> contentExtractors(final BinaryContentConfiguration binaryContent) {
+        if (binaryContent == null || !binaryContent.isEnabled()) {
+            return null;
+        }
+        // The schema is loaded once, an invalid schema fails the deployment rather than each message
+        BinarySchema schema = BinarySchema.load(binaryContent);
+        return paths -> schema.extractor(paths, binaryContent.getOffset());
+    }
+
+    private static String describeFilter(final MessageFilteringPolicyConfiguration configuration) {
+        if (configuration.getConditions() == null || configuration.getConditions().isEmpty()) {
+            return configuration.getFilter();
+        }
+        List<String> filters = new ArrayList<>(configuration.getConditions());
+        if (configuration.getFilter() != null) {
+            filters.add(0, configuration.getFilter());
+        }
+        return String.join(" " + configuration.getConditionsOperator() + " ", filters);
+    }
 
     @Override
     public String id() {
@@ -40,21 +138,134 @@ public class MessageFilteringPolicy implements Policy {
     @Override
     public Completable onMessageRequest(MessageExecutionContext ctx) {
         return Completable.defer(() -> {
-            String computedFilter = computeFilter(ctx);
-            return ctx.request().onMessage(message -> filter(ctx, computedFilter, message));
+            MessageFilter messageFilter = messageFilter(ctx);
+            MessageFilter flowFilter = flowFilter();
+            ctx.setAttribute(MessageFilteringMetrics.ATTRIBUTE, metrics);
+            PhaseMetrics phaseMetrics = metrics.getRequest();
+            if (isAckBatched() || isParallel() || isMicroBatched()) {
+                return ctx.request().onMessages(messages -> filterMessages(ctx, messageFilter, flowFilter, messages, phaseMetrics));
+            }
+            return ctx
+                .request()
+                .onMessage(message -> filter(ctx, messageFilter, flowFilter, message, phaseMetrics, acknowledger(phaseMetrics)));
         });
     }
 
     @Override
     public Completable onMessageResponse(MessageExecutionContext ctx) {
         return Completable.defer(() -> {
-            String computedFilter = computeFilter(ctx);
-            return ctx.response().onMessage(message -> filter(ctx, computedFilter, message));
+            MessageFilter messageFilter = messageFilter(ctx);
+            MessageFilter flowFilter = flowFilter();
+            ctx.setAttribute(MessageFilteringMetrics.ATTRIBUTE, metrics);
+            PhaseMetrics phaseMetrics = metrics.getResponse();
+            if (isAckBatched() || isParallel() || isMicroBatched()) {
+                return ctx.response().onMessages(messages -> filterMessages(ctx, messageFilter, flowFilter, messages, phaseMetrics));
+            }
+            return ctx
+                .response()
+                .onMessage(message -> filter(ctx, messageFilter, flowFilter, message, phaseMetrics, acknowledger(phaseMetrics)));
         });
     }
 
-    private String computeFilter(final MessageExecutionContext ctx) {
-        String computedFilter = configuration.getFilter();
+    /**
+     * Filter deciding each message on its own (i.e. the conditions, the membership lookup and the content match), which may be evaluated on
+     * several messages at the same time.
+     */
+    private MessageFilter messageFilter(final MessageExecutionContext ctx) {
+        boolean hasConditions =
+            configuration.getFilter() != null || (configuration.getConditions() != null && !configuration.getConditions().isEmpty());
+        if (membershipFilter == null && contentMatcher == null) {
+            // Without any condition, the messages are only deduplicated or sampled by the flow filter
+            return hasConditions || (!isDeduplicated() && !isSampled()) ? conditionsFilter(ctx) : PASS;
+        }
+        MessageFilter messageFilter = hasConditions ? conditionsFilter(ctx) : null;
+        // A single pass over the raw content is cheaper than evaluating conditions
+        if (contentMatcher != null) {
+            messageFilter = and(contentMatcher, messageFilter);
+        }
+        // The membership lookup is cheap, so evaluate it first
+        if (membershipFilter != null) {
+            messageFilter = and(membershipFilter, messageFilter);
+        }
+        return messageFilter;
+    }
+
+    /**
+     * Filter depending on the previous messages of the flow (i.e. deduplication and sampling), which must be evaluated one message after another
+     * in the original order, on the messages kept by the {@link #messageFilter(MessageExecutionContext) message filter} only.
+     *
+     * @return the filter, created for each message flow so that each connection and phase is deduplicated and sampled on its own, or
+     * <code>null</code> if there is none
+     */
+    private MessageFilter flowFilter() {
+        MessageFilter flowFilter = null;
+        // Only record the messages which are not filtered otherwise as seen
+        if (isDeduplicated()) {
+            flowFilter = new DeduplicationFilter(configuration.getDeduplication());
+        }
+        // Sampling is applied last so that it only thins the messages which would be propagated otherwise
+        if (isSampled()) {
+            flowFilter = and(flowFilter, Samplers.of(configuration.getSampling()));
+        }
+        return flowFilter;
+    }
+
+    private static MessageFilter and(final MessageFilter first, final MessageFilter second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return (ctx, message) -> first.evaluate(ctx, message) && second.evaluate(ctx, message);
+    }
+
+    private MessageFilter conditionsFilter(final MessageExecutionContext ctx) {
+        List<String> conditions = configuration.getConditions();
+        if (conditions == null || conditions.isEmpty()) {
+            CompiledFilter compiledFilter = compiledFilters.get(computeFilter(ctx, configuration.getFilter()));
+            return compiledFilter.isValid() ? healthy(compiledFilter) : invalid(compiledFilter);
+        }
+        List<CompiledFilter> compiledConditions = new ArrayList<>(conditions.size() + 1);
+        if (configuration.getFilter() != null) {
+            compiledConditions.add(compiledFilters.get(computeFilter(ctx, configuration.getFilter())));
+        }
+        for (String condition : conditions) {
+            compiledConditions.add(compiledFilters.get(computeFilter(ctx, condition)));
+        }
+        for (CompiledFilter compiledCondition : compiledConditions) {
+            if (!compiledCondition.isValid()) {
+                return invalid(compiledCondition);
+            }
+        }
+        // Keep the same adaptive filter while the computed conditions do not change, so that its statistics are shared by the connections
+        List<String> expressions = compiledConditions.stream().map(CompiledFilter::getExpression).collect(Collectors.toList());
+        AdaptiveFilter current = adaptiveFilter;
+        if (current == null || !current.getExpressions().equals(expressions)) {
+            current = new AdaptiveFilter(compiledConditions, configuration.getConditionsOperator());
+            adaptiveFilter = current;
+        }
+        return healthy(current);
+    }
+
+    private MessageFilter healthy(final MessageFilter messageFilter) {
+        metrics.getHealth().healthy();
+        return messageFilter;
+    }
+
+    /**
+     * The filter can never be evaluated, so rather than failing on each message, all the messages are propagated or filtered according to
+     * <code>filterMessageOnFilteringError</code>.
+     */
+    private MessageFilter invalid(final CompiledFilter compiledFilter) {
+        boolean propagate = !configuration.isFilterMessageOnFilteringError();
+        FilterHealth health = metrics.getHealth();
+        health.invalid(compiledFilter.getExpression(), compiledFilter.getError(), propagate);
+        return (ctx, message) -> {
+            health.decided();
+            return propagate;
+        };
+    }
+
+    private String computeFilter(final MessageExecutionContext ctx, final String filter) {
+        String computedFilter = filter;
         try {
             Object firstEvaluation = ctx.getTemplateEngine().getValue(computedFilter, Object.class);
             // If the return evaluation is a String, that means the configuration filter contains an EL referencing an EL as String, so double evaluation is required.
@@ -67,21 +278,293 @@ public class MessageFilteringPolicy implements Policy {
         return computedFilter;
     }
 
-    private Maybe<Message> filter(final MessageExecutionContext ctx, final String computedFilter, final Message message) {
+    CompiledFilterCache compiledFilters() {
+        return compiledFilters;
+    }
+
+    MessageFilteringMetrics metrics() {
+        return metrics;
+    }
+
+    private boolean isAckBatched() {
+        return configuration.isAckFilteredMessage() && configuration.getAckBatchSize() > 1;
+    }
+
+    private boolean isDeduplicated() {
+        return configuration.getDeduplication() != null && configuration.getDeduplication().isEnabled();
+    }
+
+    private boolean isSampled() {
+        return configuration.getSampling() != null && configuration.getSampling().isEnabled();
+    }
+
+    private boolean isParallel() {
+        return configuration.getParallelism() > 1;
+    }
+
+    private boolean isMicroBatched() {
+        MicroBatchConfiguration microBatch = configuration.getMicroBatch();
+        return microBatch != null && microBatch.isEnabled() && microBatch.getSize() > 1;
+    }
+
+    /**
+     * Scheduler running tasks on the Vert.x context the connection is handled on (i.e. its event loop), <code>null</code> when not called from
+     * a Vert.x context.
+     */
+    private static Scheduler contextScheduler() {
+        Context context = Vertx.currentContext();
+        return context == null ? null : RxHelper.scheduler(io.vertx.rxjava3.core.Context.newInstance(context));
+    }
+
+    private Flowable<Message> filterMessages(
+        final MessageExecutionContext ctx,
+        final MessageFilter messageFilter,
+        final MessageFilter flowFilter,
+        final Flowable<Message> messages,
+        final PhaseMetrics phaseMetrics
+    ) {
+        return Flowable.defer(() -> {
+            Scheduler contextScheduler = contextScheduler();
+            BatchedAcknowledger batchedAcknowledger = isAckBatched()
+                ? new BatchedAcknowledger(
+                    configuration.getAckBatchSize(),
+                    configuration.getAckBatchInterval(),
+                    phaseMetrics,
+                    contextScheduler != null ? contextScheduler : Schedulers.computation()
+                )
+                : null;
+            Consumer<Message> acknowledger = batchedAcknowledger != null ? batchedAcknowledger::add : acknowledger(phaseMetrics);
+            Flowable<Message> filtered;
+            if (isMicroBatched()) {
+                filtered = filterBatches(ctx, messageFilter, flowFilter, messages, phaseMetrics, acknowledger, contextScheduler);
+            } else if (isParallel()) {
+                // Evaluate a window of messages concurrently on the computation workers, and get the results back in the original order on the
+                // context of the connection, where the flow filter is applied and kept messages are emitted and filtered ones acknowledged
+                Flowable<Map.Entry<Message, Boolean>> evaluated = messages.concatMapEager(
+                    message ->
+                        Single
+                            .fromCallable(() -> Map.entry(message, matches(ctx, messageFilter, message, phaseMetrics)))
+                            .subscribeOn(Schedulers.computation())
+                            .toFlowable(),
+                    configuration.getParallelism(),
+                    1
+                );
+                if (contextScheduler != null) {
+                    evaluated = evaluated.observeOn(contextScheduler);
+                }
+                filtered =
+                    evaluated.mapOptional(result ->
+                        propagate(
+                                result.getKey(),
+                                admits(ctx, flowFilter, result.getKey(), result.getValue(), phaseMetrics),
+                                phaseMetrics,
+                                acknowledger
+                            )
+                            ? Optional.of(result.getKey())
+                            : Optional.empty()
+                    );
+            } else {
+                filtered = messages.concatMapMaybe(message -> filter(ctx, messageFilter, flowFilter, message, phaseMetrics, acknowledger));
+            }
+            // Flush on completion, error and cancellation so that no filtered message is left unacknowledged
+            return batchedAcknowledger == null ? filtered : filtered.doFinally(batchedAcknowledger::flush);
+        });
+    }
+
+    private Flowable<Message> filterBatches(
+        final MessageExecutionContext ctx,
+        final MessageFilter messageFilter,
+        final MessageFilter flowFilter,
+        final Flowable<Message> messages,
+        final PhaseMetrics phaseMetrics,
+        final Consumer<Message> acknowledger,
+        final Scheduler contextScheduler
+    ) {
+        MicroBatchConfiguration microBatch = configuration.getMicroBatch();
+        // A batch is evaluated once full or once its first message waited for the interval, and messages are read from the source as batches
+        // are requested
+        Flowable<List<Message>> batches = new MicroBatcher<>(
+            messages,
+            microBatch.getSize(),
+            microBatch.getInterval(),
+            contextScheduler != null ? contextScheduler : Schedulers.computation()
+        );
+        if (isParallel()) {
+            // Evaluate several batches concurrently on the computation workers, and get the results back in the original order on the context of
+            // the connection, where the flow filter is applied and kept messages are emitted and filtered ones acknowledged
+            Flowable<Map.Entry<List<Message>, boolean[]>> evaluated = batches.concatMapEager(
+                batch ->
+                    Single
+                        .fromCallable(() -> Map.entry(batch, evaluateBatch(ctx, messageFilter, batch, phaseMetrics)))
+                        .subscribeOn(Schedulers.computation())
+                        .toFlowable(),
+                configuration.getParallelism(),
+                1
+            );
+            if (contextScheduler != null) {
+                evaluated = evaluated.observeOn(contextScheduler);
+            }
+            return evaluated.concatMapIterable(
+                result -> propagateBatch(ctx, flowFilter, result.getKey(), result.getValue(), phaseMetrics, acknowledger),
+                1
+            );
+        }
+        return batches.concatMapIterable(
+            batch -> propagateBatch(ctx, flowFilter, batch, evaluateBatch(ctx, messageFilter, batch, phaseMetrics), phaseMetrics, acknowledger),
+            1
+        );
+    }
+
+    /**
+     * Evaluate a batch of messages with a context set up once for the whole batch.
+     *
+     * @return whether each message of the batch matches the filter
+     */
+    private boolean[] evaluateBatch(
+        final MessageExecutionContext ctx,
+        final MessageFilter messageFilter,
+        final List<Message> batch,
+        final PhaseMetrics phaseMetrics
+    ) {
+        MessageExecutionContext batchContext = new MessageBatchContext(ctx);
+        boolean[] results = new boolean[batch.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = matches(batchContext, messageFilter, batch.get(i), phaseMetrics);
+        }
+        return results;
+    }
+
+    /**
+     * @return the messages of the batch to propagate, in their original order
+     */
+    private List<Message> propagateBatch(
+        final MessageExecutionContext ctx,
+        final MessageFilter flowFilter,
+        final List<Message> batch,
+        final boolean[] results,
+        final PhaseMetrics phaseMetrics,
+        final Consumer<Message> acknowledger
+    ) {
+        List<Message> matching = new ArrayList<>(batch.size());
+        for (int i = 0; i < results.length; i++) {
+            if (propagate(batch.get(i), admits(ctx, flowFilter, batch.get(i), results[i], phaseMetrics), phaseMetrics, acknowledger)) {
+                matching.add(batch.get(i));
+            }
+        }
+        return matching;
+    }
+
+    private static Consumer<Message> acknowledger(final PhaseMetrics phaseMetrics) {
+        return message -> {
+            message.ack();
+            phaseMetrics.acked();
+        };
+    }
+
+    private Maybe<Message> filter(
+        final MessageExecutionContext ctx,
+        final MessageFilter messageFilter,
+        final MessageFilter flowFilter,
+        final Message message,
+        final PhaseMetrics phaseMetrics,
+        final Consumer<Message> acknowledger
+    ) {
+        return decide(ctx, messageFilter, flowFilter, message, phaseMetrics, acknowledger) ? Maybe.just(message) : Maybe.empty();
+    }
+
+    /**
+     * Evaluate the filter on the message, acknowledging it when it is filtered out.
+     *
+     * @return <code>true</code> if the message is propagated, <code>false</code> if it is filtered out
+     */
+    private boolean decide(
+        final MessageExecutionContext ctx,
+        final MessageFilter messageFilter,
+        final MessageFilter flowFilter,
+        final Message message,
+        final PhaseMetrics phaseMetrics,
+        final Consumer<Message> acknowledger
+    ) {
+        boolean matchesCondition = matches(ctx, messageFilter, message, phaseMetrics);
+        return propagate(message, admits(ctx, flowFilter, message, matchesCondition, phaseMetrics), phaseMetrics, acknowledger);
+    }
+
+    /**
+     * Evaluate the filter on the message, within the evaluation budget and according to <code>filterMessageOnFilteringError</code>.
+     *
+     * @return <code>true</code> if the message matches the filter
+     */
+    private boolean matches(
+        final MessageExecutionContext ctx,
+        final MessageFilter messageFilter,
+        final Message message,
+        final PhaseMetrics phaseMetrics
+    ) {
         boolean matchesCondition;
+        if (breaker != null && !breaker.allow()) {
+            // The filter is too slow, the message is decided without evaluation until the circuit breaker closes
+            matchesCondition = !configuration.isFilterMessageOnFilteringError();
+        } else {
+            long start = System.nanoTime();
+            try {
+                matchesCondition = messageFilter.evaluate(ctx, message);
+            } catch (Exception ex) {
+                phaseMetrics.errored();
+                matchesCondition = !configuration.isFilterMessageOnFilteringError();
+            }
+            long elapsed = System.nanoTime() - start;
+            phaseMetrics.evaluated(elapsed);
+            if (breaker != null && breaker.record(elapsed)) {
+                matchesCondition = !configuration.isFilterMessageOnFilteringError();
+            }
+        }
+        return matchesCondition;
+    }
+
+    /**
+     * Apply the flow filter to a message matching the message filter, according to <code>filterMessageOnFilteringError</code>. Must be called
+     * in the original order of the messages.
+     *
+     * @return <code>true</code> if the message is kept
+     */
+    private boolean admits(
+        final MessageExecutionContext ctx,
+        final MessageFilter flowFilter,
+        final Message message,
+        final boolean matchesCondition,
+        final PhaseMetrics phaseMetrics
+    ) {
+        if (!matchesCondition || flowFilter == null) {
+            return matchesCondition;
+        }
         try {
-            matchesCondition = ctx.getTemplateEngine(message).getValue(computedFilter, boolean.class);
+            return flowFilter.evaluate(ctx, message);
         } catch (Exception ex) {
-            matchesCondition = !configuration.isFilterMessageOnFilteringError();
+            phaseMetrics.errored();
+            return !configuration.isFilterMessageOnFilteringError();
         }
+    }
 
+    /**
+     * Count the message as matched or filtered, acknowledging it when it is filtered out.
+     *
+     * @return <code>true</code> if the message is propagated, <code>false</code> if it is filtered out
+     */
+    private boolean propagate(
+        final Message message,
+        final boolean matchesCondition,
+        final PhaseMetrics phaseMetrics,
+        final Consumer<Message> acknowledger
+    ) {
         if (matchesCondition) {
-            return Maybe.just(message);
+            phaseMetrics.matched();
+            return true;
         } else {
+            phaseMetrics.filtered();
             if (configuration.isAckFilteredMessage()) {
-                message.ack();
+                acknowledger.accept(message);
             }
-            return Maybe.empty();
+            return false;
         }
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.ack;
+
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.metrics.PhaseMetrics;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.Disposable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collect the filtered messages of a message flow and acknowledge them together, either when the batch is full or when its oldest message has
+ * been pending for the configured interval. Pending messages must be {@link #flush() flushed} when the flow terminates.
+ * <p>
+ * The message API has no batch acknowledgment, so each message of a batch is still acknowledged on its own: the acks are grouped in time, in the
+ * order the messages have been filtered, which lets endpoints committing acks asynchronously merge them. Acks are only deferred, never dropped,
+ * so the delivery guarantees of the source are not changed.
+ *
+ * @author GraviteeSource Team
+ */
+public class BatchedAcknowledger {
+
+    private final int size;
+    private final long interval;
+    private final PhaseMetrics metrics;
+    private final Scheduler scheduler;
+    private List<Message> pending;
+    private Disposable timer;
+
+    /**
+     * @param scheduler the scheduler of the interval timer, which should be the one of the connection so that messages are acknowledged on it
+     */
+    public BatchedAcknowledger(final int size, final long interval, final PhaseMetrics metrics, final Scheduler scheduler) {
+        this.size = size;
+        this.interval = interval;
+        this.metrics = metrics;
+        this.scheduler = scheduler;
+        this.pending = new ArrayList<>(size);
+    }
+
+    public synchronized void add(final Message message) {
+        pending.add(message);
+        if (pending.size() >= size) {
+            flush();
+        } else if (pending.size() == 1 && interval > 0) {
+            timer = scheduler.scheduleDirect(this::flush, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Acknowledge all the pending messages.
+     */
+    public synchronized void flush() {
+        if (timer != null) {
+            timer.dispose();
+            timer = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Message> batch = pending;
+        pending = new ArrayList<>(size);
+        for (Message message : batch) {
+            message.ack();
+            metrics.acked();
+        }
+    }
+
+    synchronized int pending() {
+        return pending.size();
+    }
+}
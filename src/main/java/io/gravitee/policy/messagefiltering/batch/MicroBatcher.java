@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.batch;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableSubscriber;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.Disposable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Group the items of a flow into batches of up to <code>size</code> items, a batch being emitted once full or once its oldest item has been
+ * waiting for <code>interval</code> milliseconds.
+ * <p>
+ * Unlike the time bounded buffer of RxJava, the demand of the consumer is respected: <code>size</code> items are requested from the source for
+ * each requested batch, so a slow consumer slows the source down instead of batches piling up in memory. A batch whose interval elapsed while no
+ * batch is requested keeps filling up to its size, and is emitted as soon as a batch is requested.
+ *
+ * @author GraviteeSource Team
+ */
+public final class MicroBatcher<T> extends Flowable<List<T>> {
+
+    private final Publisher<T> source;
+    private final int size;
+    private final long interval;
+    private final Scheduler scheduler;
+
+    /**
+     * @param scheduler the scheduler of the interval timer, which should be the one of the connection so that batches are emitted on it
+     */
+    public MicroBatcher(final Publisher<T> source, final int size, final long interval, final Scheduler scheduler) {
+        if (size <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("Micro-batches must have a positive size and interval");
+        }
+        this.source = source;
+        this.size = size;
+        this.interval = interval;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    protected void subscribeActual(final Subscriber<? super List<T>> subscriber) {
+        source.subscribe(new BatchSubscriber<>(subscriber, size, interval, scheduler));
+    }
+
+    /**
+     * State is guarded by the subscriber itself, while batches and terminal events are emitted by a single thread at a time, outside of the lock.
+     */
+    private static final class BatchSubscriber<T> implements FlowableSubscriber<T>, Subscription {
+
+        private final Subscriber<? super List<T>> downstream;
+        private final int size;
+        private final long interval;
+        private final Scheduler scheduler;
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Deque<List<T>> ready = new ArrayDeque<>();
+        private Subscription upstream;
+        private List<T> current;
+        private Disposable timer;
+        private boolean expired;
+        private long requested;
+        private boolean done;
+        private Throwable error;
+        private boolean stopped;
+
+        private BatchSubscriber(final Subscriber<? super List<T>> downstream, final int size, final long interval, final Scheduler scheduler) {
+            this.downstream = downstream;
+            this.size = size;
+            this.interval = interval;
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(final T item) {
+            synchronized (this) {
+                if (done || stopped) {
+                    return;
+                }
+                if (current == null) {
+                    List<T> batch = new ArrayList<>(size);
+                    current = batch;
+                    timer = scheduler.scheduleDirect(() -> expire(batch), interval, TimeUnit.MILLISECONDS);
+                }
+                current.add(item);
+                if (current.size() >= size) {
+                    close();
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                error = throwable;
+                done = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (this) {
+                done = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                return;
+            }
+            synchronized (this) {
+                requested = addCap(requested, n);
+            }
+            upstream.request(n > Long.MAX_VALUE / size ? Long.MAX_VALUE : n * size);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                stop();
+            }
+            upstream.cancel();
+        }
+
+        private void expire(final List<T> batch) {
+            synchronized (this) {
+                // The batch may have been closed by its last item while the timer was firing
+                if (current != batch) {
+                    return;
+                }
+                expired = true;
+            }
+            drain();
+        }
+
+        /**
+         * Move the current batch to the ones ready to be emitted. Must be called while holding the lock.
+         */
+        private void close() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+            ready.add(current);
+            current = null;
+            expired = false;
+        }
+
+        /**
+         * Drop all the pending items and stop emitting. Must be called while holding the lock.
+         */
+        private void stop() {
+            stopped = true;
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+            current = null;
+            ready.clear();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                for (;;) {
+                    List<T> batch = null;
+                    Throwable failure = null;
+                    boolean completed = false;
+                    synchronized (this) {
+                        if (stopped) {
+                            return;
+                        }
+                        if (error != null) {
+                            failure = error;
+                            stop();
+                        } else {
+                            if (ready.isEmpty() && current != null && requested > 0 && (expired || done)) {
+                                close();
+                            }
+                            if (requested > 0 && !ready.isEmpty()) {
+                                batch = ready.poll();
+                                if (requested != Long.MAX_VALUE) {
+                                    requested--;
+                                }
+                            } else if (done && ready.isEmpty() && current == null) {
+                                completed = true;
+                                stop();
+                            }
+                        }
+                    }
+                    if (failure != null) {
+                        downstream.onError(failure);
+                        return;
+                    }
+                    if (completed) {
+                        downstream.onComplete();
+                        return;
+                    }
+                    if (batch == null) {
+                        break;
+                    }
+                    downstream.onNext(batch);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private static long addCap(final long a, final long b) {
+            long sum = a + b;
+            return sum < 0 ? Long.MAX_VALUE : sum;
+        }
+    }
+}
@@ -0,0 +1,549 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.binary;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.policy.messagefiltering.json.ContentFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Avro schema, reading fields from the Avro binary encoding of a single datum.
+ * <p>
+ * The encoding carries no field names nor lengths for the records, so the fields preceding the ones requested are skipped according to
+ * their type: strings, bytes and fixed are skipped by their length, and arrays and maps written with their block size are skipped at once.
+ * The reading stops as soon as every requested path is resolved.
+ * Results follow the ones of {@link JsonFieldExtractor} on the JSON form of the datum: enums are reported as their symbol, bytes and fixed
+ * as their Base64 form, and records, arrays and maps as {@link JsonFieldExtractor#CONTAINER}.
+ *
+ * @author GraviteeSource Team
+ */
+public final class AvroSchema implements BinarySchema {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Type root;
+
+    private AvroSchema(final Type root) {
+        this.root = root;
+    }
+
+    /**
+     * Parse the given Avro schema.
+     *
+     * @param definition the JSON definition of the schema
+     * @return the schema
+     * @throws IllegalArgumentException if the definition is not a valid Avro schema
+     */
+    public static AvroSchema parse(final String definition) {
+        Object json;
+        try (JsonParser parser = JSON_FACTORY.createParser(definition)) {
+            if (parser.nextToken() == null) {
+                throw new IllegalArgumentException("Avro schema is empty");
+            }
+            json = readJson(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Avro schema is not a valid JSON: " + e.getMessage(), e);
+        }
+        return new AvroSchema(new TypeParser().parse(json, null));
+    }
+
+    @Override
+    public ContentFieldExtractor extractor(final List<JsonFieldPath> paths, final int offset) {
+        for (JsonFieldPath path : paths) {
+            if (!isDefined(root, path.getSegments(), 0)) {
+                throw new IllegalArgumentException("Path [" + path + "] is not defined by the Avro schema");
+            }
+        }
+        PathNode tree = PathNode.of(paths);
+        int size = paths.size();
+        return content -> extract(content, tree, size, offset);
+    }
+
+    private static boolean isDefined(final Type type, final List<Object> segments, final int position) {
+        if (position == segments.size()) {
+            return true;
+        }
+        Object segment = segments.get(position);
+        switch (type.kind) {
+            case RECORD:
+                Field field = type.fields.get(segment);
+                return field != null && isDefined(field.type, segments, position + 1);
+            case ARRAY:
+                return segment instanceof Integer && isDefined(type.items, segments, position + 1);
+            case MAP:
+                return segment instanceof String && isDefined(type.items, segments, position + 1);
+            case UNION:
+                for (Type branch : type.branches) {
+                    if (isDefined(branch, segments, position)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private Object[] extract(final Buffer content, final PathNode tree, final int size, final int offset) throws IOException {
+        Object[] values = new Object[size];
+        Arrays.fill(values, JsonFieldExtractor.NOT_FOUND);
+        if (content == null || content.length() <= offset) {
+            return values;
+        }
+        BinaryReader reader = BinaryReader.of(content);
+        reader.skip(offset);
+        new Extraction(reader, values).value(tree, root);
+        return values;
+    }
+
+    private static class Extraction {
+
+        private final BinaryReader reader;
+        private final Object[] values;
+        private int remaining;
+
+        private Extraction(final BinaryReader reader, final Object[] values) {
+            this.reader = reader;
+            this.values = values;
+            this.remaining = values.length;
+        }
+
+        /**
+         * Read a datum of the given type.
+         *
+         * @return <code>false</code> once every path is resolved and the reading can stop
+         */
+        private boolean value(final PathNode node, final Type type) throws IOException {
+            switch (type.kind) {
+                case RECORD:
+                    resolve(node, JsonFieldExtractor.CONTAINER);
+                    return node.properties == null ? skip(type) : record(node, type);
+                case ARRAY:
+                    resolve(node, JsonFieldExtractor.CONTAINER);
+                    return node.indexes == null ? skip(type) : array(node, type);
+                case MAP:
+                    resolve(node, JsonFieldExtractor.CONTAINER);
+                    return node.properties == null ? skip(type) : map(node, type);
+                case UNION:
+                    return value(node, branch(type));
+                default:
+                    resolve(node, scalar(type));
+                    return remaining > 0;
+            }
+        }
+
+        private boolean record(final PathNode node, final Type type) throws IOException {
+            for (Field field : type.fields.values()) {
+                PathNode child = node.properties.get(field.name);
+                if (child == null) {
+                    skip(field.type);
+                } else if (!value(child, field.type)) {
+                    return false;
+                }
+            }
+            // A property missing from the branch of a union is a missing leaf property
+            resolveMissingLeaves(node);
+            return remaining > 0;
+        }
+
+        private boolean array(final PathNode node, final Type type) throws IOException {
+            long index = 0;
+            for (long count = blockCount(); count != 0; count = blockCount()) {
+                if (count < 0) {
+                    count = -count;
+                    long blockSize = reader.readZigZag();
+                    if (!node.hasIndexBetween(index, index + count)) {
+                        reader.skip(blockSize);
+                        index += count;
+                        continue;
+                    }
+                }
+                for (long i = 0; i < count; i++) {
+                    PathNode child = index > Integer.MAX_VALUE ? null : node.indexes.get((int) index);
+                    index++;
+                    if (child == null) {
+                        skip(type.items);
+                    } else if (!value(child, type.items)) {
+                        return false;
+                    }
+                }
+            }
+            return remaining > 0;
+        }
+
+        private boolean map(final PathNode node, final Type type) throws IOException {
+            for (long count = blockCount(); count != 0; count = blockCount()) {
+                if (count < 0) {
+                    count = -count;
+                    reader.readZigZag();
+                }
+                for (long i = 0; i < count; i++) {
+                    PathNode child = node.properties.get(reader.readString(reader.readZigZag()));
+                    if (child == null) {
+                        skip(type.items);
+                    } else if (!value(child, type.items)) {
+                        return false;
+                    }
+                }
+            }
+            resolveMissingLeaves(node);
+            return remaining > 0;
+        }
+
+        private long blockCount() throws IOException {
+            return reader.readZigZag();
+        }
+
+        private Type branch(final Type union) throws IOException {
+            long index = reader.readZigZag();
+            if (index < 0 || index >= union.branches.size()) {
+                throw new IOException("Invalid union branch " + index);
+            }
+            return union.branches.get((int) index);
+        }
+
+        private Object scalar(final Type type) throws IOException {
+            switch (type.kind) {
+                case NULL:
+                    return null;
+                case BOOLEAN:
+                    return reader.readByte() != 0;
+                case INT:
+                    return (int) reader.readZigZag();
+                case LONG:
+                    return reader.readZigZag();
+                case FLOAT:
+                    return (double) Float.intBitsToFloat(reader.readFixed32());
+                case DOUBLE:
+                    return Double.longBitsToDouble(reader.readFixed64());
+                case STRING:
+                    return reader.readString(reader.readZigZag());
+                case BYTES:
+                    return Base64.getEncoder().encodeToString(reader.readBytes(reader.readZigZag()));
+                case FIXED:
+                    return Base64.getEncoder().encodeToString(reader.readBytes(type.size));
+                case ENUM:
+                    long index = reader.readZigZag();
+                    if (index < 0 || index >= type.symbols.size()) {
+                        throw new IOException("Invalid enum symbol " + index);
+                    }
+                    return type.symbols.get((int) index);
+                default:
+                    throw new IllegalStateException("Unexpected type " + type.kind);
+            }
+        }
+
+        private boolean skip(final Type type) throws IOException {
+            switch (type.kind) {
+                case NULL:
+                    break;
+                case BOOLEAN:
+                    reader.skip(1);
+                    break;
+                case INT:
+                case LONG:
+                case ENUM:
+                    reader.readVarint();
+                    break;
+                case FLOAT:
+                    reader.skip(Float.BYTES);
+                    break;
+                case DOUBLE:
+                    reader.skip(Double.BYTES);
+                    break;
+                case STRING:
+                case BYTES:
+                    reader.skip(reader.readZigZag());
+                    break;
+                case FIXED:
+                    reader.skip(type.size);
+                    break;
+                case RECORD:
+                    for (Field field : type.fields.values()) {
+                        skip(field.type);
+                    }
+                    break;
+                case ARRAY:
+                case MAP:
+                    for (long count = blockCount(); count != 0; count = blockCount()) {
+                        if (count < 0) {
+                            reader.skip(reader.readZigZag());
+                            continue;
+                        }
+                        for (long i = 0; i < count; i++) {
+                            if (type.kind == Kind.MAP) {
+                                reader.skip(reader.readZigZag());
+                            }
+                            skip(type.items);
+                        }
+                    }
+                    break;
+                case UNION:
+                    skip(branch(type));
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected type " + type.kind);
+            }
+            return remaining > 0;
+        }
+
+        private void resolveMissingLeaves(final PathNode node) {
+            for (PathNode child : node.properties.values()) {
+                if (child.target >= 0 && values[child.target] == JsonFieldExtractor.NOT_FOUND) {
+                    resolve(child, null);
+                }
+            }
+        }
+
+        private void resolve(final PathNode node, final Object value) {
+            if (node.target >= 0 && values[node.target] == JsonFieldExtractor.NOT_FOUND) {
+                values[node.target] = value;
+                remaining--;
+            }
+        }
+    }
+
+    private static Object readJson(final JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            Map<String, Object> object = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                object.put(name, readJson(parser));
+            }
+            return object;
+        }
+        if (token == JsonToken.START_ARRAY) {
+            List<Object> array = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                array.add(readJson(parser));
+            }
+            return array;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getNumberValue();
+        }
+        return token == JsonToken.VALUE_TRUE ? Boolean.TRUE : token == JsonToken.VALUE_FALSE ? Boolean.FALSE : null;
+    }
+
+    private static class TypeParser {
+
+        private final Map<String, Type> namedTypes = new HashMap<>();
+
+        private Type parse(final Object json, final String namespace) {
+            if (json instanceof String) {
+                return named((String) json, namespace);
+            }
+            if (json instanceof List) {
+                Type union = new Type(Kind.UNION);
+                union.branches = new ArrayList<>();
+                for (Object branch : (List<?>) json) {
+                    union.branches.add(parse(branch, namespace));
+                }
+                return union;
+            }
+            if (!(json instanceof Map)) {
+                throw new IllegalArgumentException("Invalid Avro schema type [" + json + "]");
+            }
+            Map<?, ?> definition = (Map<?, ?>) json;
+            Object typeName = definition.get("type");
+            if (!(typeName instanceof String)) {
+                return parse(typeName, namespace);
+            }
+            switch ((String) typeName) {
+                case "record":
+                case "error":
+                    return record(definition, namespace);
+                case "enum":
+                    Type enumType = define(new Type(Kind.ENUM), definition, namespace);
+                    enumType.symbols = new ArrayList<>();
+                    for (Object symbol : list(definition, "symbols")) {
+                        enumType.symbols.add(String.valueOf(symbol));
+                    }
+                    return enumType;
+                case "fixed":
+                    Type fixed = define(new Type(Kind.FIXED), definition, namespace);
+                    if (!(definition.get("size") instanceof Number)) {
+                        throw new IllegalArgumentException("Avro fixed type [" + fixed.name + "] has no size");
+                    }
+                    fixed.size = ((Number) definition.get("size")).intValue();
+                    return fixed;
+                case "array":
+                    Type array = new Type(Kind.ARRAY);
+                    array.items = parse(required(definition, "items"), namespace);
+                    return array;
+                case "map":
+                    Type map = new Type(Kind.MAP);
+                    map.items = parse(required(definition, "values"), namespace);
+                    return map;
+                default:
+                    // Primitive type possibly annotated with a logical type, read as the primitive type
+                    return named((String) typeName, namespace);
+            }
+        }
+
+        private Type record(final Map<?, ?> definition, final String namespace) {
+            // The record is defined before its fields are, so that the fields can reference it recursively
+            Type record = define(new Type(Kind.RECORD), definition, namespace);
+            String recordNamespace = namespaceOf(record.name);
+            record.fields = new LinkedHashMap<>();
+            for (Object fieldDefinition : list(definition, "fields")) {
+                if (!(fieldDefinition instanceof Map)) {
+                    throw new IllegalArgumentException("Invalid field of Avro record [" + record.name + "]");
+                }
+                Object name = ((Map<?, ?>) fieldDefinition).get("name");
+                if (!(name instanceof String)) {
+                    throw new IllegalArgumentException("Field of Avro record [" + record.name + "] has no name");
+                }
+                Field field = new Field((String) name, parse(required((Map<?, ?>) fieldDefinition, "type"), recordNamespace));
+                record.fields.put(field.name, field);
+            }
+            return record;
+        }
+
+        private Type define(final Type type, final Map<?, ?> definition, final String namespace) {
+            Object name = definition.get("name");
+            if (!(name instanceof String)) {
+                throw new IllegalArgumentException("Avro named type has no name");
+            }
+            Object typeNamespace = definition.get("namespace");
+            type.name = fullName((String) name, typeNamespace instanceof String ? (String) typeNamespace : namespace);
+            if (namedTypes.putIfAbsent(type.name, type) != null) {
+                throw new IllegalArgumentException("Avro type [" + type.name + "] is defined twice");
+            }
+            return type;
+        }
+
+        private Type named(final String name, final String namespace) {
+            switch (name) {
+                case "null":
+                    return new Type(Kind.NULL);
+                case "boolean":
+                    return new Type(Kind.BOOLEAN);
+                case "int":
+                    return new Type(Kind.INT);
+                case "long":
+                    return new Type(Kind.LONG);
+                case "float":
+                    return new Type(Kind.FLOAT);
+                case "double":
+                    return new Type(Kind.DOUBLE);
+                case "bytes":
+                    return new Type(Kind.BYTES);
+                case "string":
+                    return new Type(Kind.STRING);
+                default:
+                    Type type = namedTypes.get(fullName(name, namespace));
+                    if (type == null) {
+                        type = namedTypes.get(name);
+                    }
+                    if (type == null) {
+                        throw new IllegalArgumentException("Avro type [" + name + "] is not defined");
+                    }
+                    return type;
+            }
+        }
+
+        private static String fullName(final String name, final String namespace) {
+            return name.indexOf('.') >= 0 || namespace == null || namespace.isEmpty() ? name : namespace + "." + name;
+        }
+
+        private static String namespaceOf(final String fullName) {
+            int lastDot = fullName.lastIndexOf('.');
+            return lastDot < 0 ? null : fullName.substring(0, lastDot);
+        }
+
+        private static Object required(final Map<?, ?> definition, final String attribute) {
+            Object value = definition.get(attribute);
+            if (value == null) {
+                throw new IllegalArgumentException("Avro schema attribute [" + attribute + "] is missing");
+            }
+            return value;
+        }
+
+        private static List<?> list(final Map<?, ?> definition, final String attribute) {
+            Object value = required(definition, attribute);
+            if (!(value instanceof List)) {
+                throw new IllegalArgumentException("Avro schema attribute [" + attribute + "] is not an array");
+            }
+            return (List<?>) value;
+        }
+    }
+
+    private enum Kind {
+        NULL,
+        BOOLEAN,
+        INT,
+        LONG,
+        FLOAT,
+        DOUBLE,
+        BYTES,
+        STRING,
+        RECORD,
+        ENUM,
+        ARRAY,
+        MAP,
+        UNION,
+        FIXED,
+    }
+
+    private static class Type {
+
+        private final Kind kind;
+        private String name;
+        private Map<String, Field> fields;
+
+        /**
+         * Type of the elements of an array, or of the values of a map.
+         */
+        private Type items;
+
+        private List<Type> branches;
+        private List<String> symbols;
+        private int size;
+
+        private Type(final Kind kind) {
+            this.kind = kind;
+        }
+    }
+
+    private static class Field {
+
+        private final String name;
+        private final Type type;
+
+        private Field(final String name, final Type type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+}
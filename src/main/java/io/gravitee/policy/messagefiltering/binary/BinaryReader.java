@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.binary;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.netty.buffer.ByteBuf;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor over encoded bytes, reading the primitive encodings shared by Avro and Protocol Buffers without copying the bytes.
+ *
+ * @author GraviteeSource Team
+ */
+class BinaryReader {
+
+    private final ByteBuffer bytes;
+    private int position;
+    private int limit;
+
+    BinaryReader(final ByteBuffer bytes) {
+        this.bytes = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.position = bytes.position();
+        this.limit = bytes.limit();
+    }
+
+    static BinaryReader of(final Buffer content) {
+        ByteBuf byteBuf = content.getNativeBuffer();
+        return new BinaryReader(byteBuf != null ? byteBuf.nioBuffer() : ByteBuffer.wrap(content.getBytes()));
+    }
+
+    int position() {
+        return position;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    /**
+     * Restrict the reads to the given limit, i.e. to the bytes of an embedded message.
+     *
+     * @return the previous limit, to be restored once the embedded bytes are read
+     */
+    int limit(final int newLimit) throws IOException {
+        if (newLimit > limit || newLimit < position) {
+            throw new EOFException("Truncated content");
+        }
+        int previous = limit;
+        limit = newLimit;
+        return previous;
+    }
+
+    void restoreLimit(final int previous) {
+        limit = previous;
+    }
+
+    boolean hasRemaining() {
+        return position < limit;
+    }
+
+    void skip(final long length) throws IOException {
+        if (length < 0 || length > limit - position) {
+            throw new EOFException("Truncated content");
+        }
+        position += (int) length;
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        return bytes.get(position++) & 0xff;
+    }
+
+    /**
+     * Read an unsigned variable length integer, as encoded by Protocol Buffers.
+     */
+    long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Read a zig-zag encoded variable length integer, as encoded by Avro and by the signed types of Protocol Buffers.
+     */
+    long readZigZag() throws IOException {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    int readFixed32() throws IOException {
+        require(Integer.BYTES);
+        int value = bytes.getInt(position);
+        position += Integer.BYTES;
+        return value;
+    }
+
+    long readFixed64() throws IOException {
+        require(Long.BYTES);
+        long value = bytes.getLong(position);
+        position += Long.BYTES;
+        return value;
+    }
+
+    String readString(final long length) throws IOException {
+        return new String(readBytes(length), StandardCharsets.UTF_8);
+    }
+
+    byte[] readBytes(final long length) throws IOException {
+        if (length < 0 || length > limit - position) {
+            throw new EOFException("Truncated content");
+        }
+        byte[] value = new byte[(int) length];
+        bytes.get(position, value);
+        position += value.length;
+        return value;
+    }
+
+    private void require(final int length) throws IOException {
+        if (limit - position < length) {
+            throw new EOFException("Truncated content");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.binary;
+
+import io.gravitee.policy.messagefiltering.configuration.BinaryContentConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.BinaryFormat;
+import io.gravitee.policy.messagefiltering.json.ContentFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Schema of a binary content, used to read the fields referenced by a filter straight from the encoded bytes, without decoding the whole
+ * content into objects.
+ *
+ * @author GraviteeSource Team
+ */
+public interface BinarySchema {
+    /**
+     * Build an extractor of the given paths, property names addressing the fields of the records (or messages) and indexes the elements of
+     * the arrays (or repeated fields).
+     *
+     * @param paths the paths to extract
+     * @param offset the number of bytes preceding the encoded content
+     * @return the extractor
+     * @throws IllegalArgumentException if a path is not defined by the schema
+     */
+    ContentFieldExtractor extractor(List<JsonFieldPath> paths, int offset);
+
+    /**
+     * Load the schema described by the configuration, from its inline definition or from its file.
+     *
+     * @param configuration the binary content configuration
+     * @return the schema
+     * @throws IllegalArgumentException if the schema can not be read or is not valid
+     */
+    static BinarySchema load(final BinaryContentConfiguration configuration) {
+        String definition = configuration.getSchema();
+        if (definition == null || definition.isBlank()) {
+            if (configuration.getSchemaFile() == null) {
+                throw new IllegalArgumentException("A schema or a schema file is required to filter binary content");
+            }
+            try {
+                definition = Files.readString(Path.of(configuration.getSchemaFile()));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to read schema file [" + configuration.getSchemaFile() + "]", e);
+            }
+        }
+        if (configuration.getFormat() == BinaryFormat.PROTOBUF) {
+            return ProtobufSchema.parse(definition, configuration.getMessageType());
+        }
+        return AvroSchema.parse(definition);
+    }
+}
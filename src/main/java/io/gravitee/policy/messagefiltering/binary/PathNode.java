@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.binary;
+
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree of the paths requested to an extractor, so that each part of the content is read once whatever the number of paths going through it.
+ *
+ * @author GraviteeSource Team
+ */
+final class PathNode {
+
+    /**
+     * Index of the path ending on this node, <code>-1</code> if no path ends here.
+     */
+    int target = -1;
+
+    /**
+     * Identifier of the node, from <code>0</code> to the number of nodes of the tree excluded.
+     */
+    final int id;
+
+    Map<String, PathNode> properties;
+    Map<Integer, PathNode> indexes;
+
+    private PathNode(final int id) {
+        this.id = id;
+    }
+
+    static PathNode of(final List<JsonFieldPath> paths) {
+        int[] ids = { 1 };
+        PathNode root = new PathNode(0);
+        for (int i = 0; i < paths.size(); i++) {
+            PathNode node = root;
+            for (Object segment : paths.get(i).getSegments()) {
+                node = node.child(segment, ids);
+            }
+            node.target = i;
+        }
+        return root;
+    }
+
+    boolean isLeaf() {
+        return properties == null && indexes == null;
+    }
+
+    /**
+     * @return <code>true</code> if an index of the given range, <code>to</code> excluded, is requested
+     */
+    boolean hasIndexBetween(final long from, final long to) {
+        for (Integer index : indexes.keySet()) {
+            if (index >= from && index < to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private PathNode child(final Object segment, final int[] ids) {
+        if (segment instanceof Integer) {
+            if (indexes == null) {
+                indexes = new HashMap<>();
+            }
+            return indexes.computeIfAbsent((Integer) segment, i -> new PathNode(ids[0]++));
+        }
+        if (properties == null) {
+            properties = new HashMap<>();
+        }
+        return properties.computeIfAbsent((String) segment, p -> new PathNode(ids[0]++));
+    }
+}
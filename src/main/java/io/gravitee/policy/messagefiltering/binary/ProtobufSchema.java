@@ -0,0 +1,757 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.binary;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.policy.messagefiltering.json.ContentFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protocol Buffers schema, reading fields from the wire format of a message.
+ * <p>
+ * The fields which are not requested are skipped according to their wire type, without decoding them, and embedded messages are only
+ * entered when a requested path goes through them. As a field may be repeated in the encoded message, the whole message is scanned and the
+ * last value of a field wins, as with the Protocol Buffers parsers.
+ * Results follow the ones of {@link JsonFieldExtractor} on the JSON form of the message: a missing field is reported as its default value
+ * when it has no presence (proto3 singular scalars) and as <code>null</code> otherwise, enums are reported as their name, bytes as their
+ * Base64 form, and messages and repeated fields as {@link JsonFieldExtractor#CONTAINER}.
+ * Map fields and groups are skipped and can not be referenced.
+ *
+ * @author GraviteeSource Team
+ */
+public final class ProtobufSchema implements BinarySchema {
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_START_GROUP = 3;
+    private static final int WIRE_END_GROUP = 4;
+    private static final int WIRE_FIXED32 = 5;
+
+    private final MessageType root;
+
+    private ProtobufSchema(final MessageType root) {
+        this.root = root;
+    }
+
+    /**
+     * Parse the given <code>.proto</code> definition.
+     *
+     * @param definition the definition
+     * @param messageType the name of the message type of the content, the first message of the definition if <code>null</code>
+     * @return the schema
+     * @throws IllegalArgumentException if the definition is not valid or does not define the message type
+     */
+    public static ProtobufSchema parse(final String definition, final String messageType) {
+        DefinitionParser parser = new DefinitionParser(definition);
+        parser.parse();
+        parser.resolveTypes();
+        return new ProtobufSchema(parser.messageType(messageType));
+    }
+
+    @Override
+    public ContentFieldExtractor extractor(final List<JsonFieldPath> paths, final int offset) {
+        for (JsonFieldPath path : paths) {
+            if (!isDefined(root, path.getSegments())) {
+                throw new IllegalArgumentException("Path [" + path + "] is not defined by the Protobuf schema");
+            }
+        }
+        PathNode tree = PathNode.of(paths);
+        int size = paths.size();
+        int nodes = countNodes(tree);
+        return content -> extract(content, tree, size, nodes, offset);
+    }
+
+    private static boolean isDefined(final MessageType type, final List<Object> segments) {
+        MessageType current = type;
+        int position = 0;
+        while (position < segments.size()) {
+            Object segment = segments.get(position++);
+            Field field = current == null || !(segment instanceof String) ? null : current.fieldsByName.get(segment);
+            if (field == null || (field.map && position < segments.size())) {
+                return false;
+            }
+            if (field.repeated && position < segments.size() && !(segments.get(position++) instanceof Integer)) {
+                return false;
+            }
+            current = field.message;
+        }
+        return true;
+    }
+
+    private static int countNodes(final PathNode node) {
+        int count = 1;
+        if (node.properties != null) {
+            for (PathNode child : node.properties.values()) {
+                count += countNodes(child);
+            }
+        }
+        if (node.indexes != null) {
+            for (PathNode child : node.indexes.values()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    private Object[] extract(final Buffer content, final PathNode tree, final int size, final int nodes, final int offset)
+        throws IOException {
+        Object[] values = new Object[size];
+        Arrays.fill(values, JsonFieldExtractor.NOT_FOUND);
+        if (content == null || content.length() < offset) {
+            return values;
+        }
+        BinaryReader reader = BinaryReader.of(content);
+        reader.skip(offset);
+        Extraction extraction = new Extraction(reader, values, nodes);
+        extraction.message(tree, root);
+        extraction.resolveMissing(tree, root);
+        return values;
+    }
+
+    private static class Extraction {
+
+        private final BinaryReader reader;
+        private final Object[] values;
+
+        /**
+         * Nodes of the messages read at least once, indexed by their identifier.
+         */
+        private final boolean[] seen;
+
+        private Extraction(final BinaryReader reader, final Object[] values, final int nodes) {
+            this.reader = reader;
+            this.values = values;
+            this.seen = new boolean[nodes];
+        }
+
+        private void message(final PathNode node, final MessageType type) throws IOException {
+            seen[node.id] = true;
+            set(node, JsonFieldExtractor.CONTAINER);
+            Map<Integer, int[]> elementCounts = null;
+            while (reader.hasRemaining()) {
+                long key = reader.readVarint();
+                int wireType = (int) (key & 0x7);
+                Field field = type.fieldsByNumber.get((int) (key >>> 3));
+                PathNode child = field == null || node.properties == null ? null : node.properties.get(field.name);
+                if (child == null) {
+                    skip(wireType, key);
+                } else if (!field.repeated) {
+                    value(child, field, wireType);
+                } else {
+                    seen[child.id] = true;
+                    set(child, JsonFieldExtractor.CONTAINER);
+                    if (child.indexes == null) {
+                        skip(wireType, key);
+                        continue;
+                    }
+                    if (elementCounts == null) {
+                        elementCounts = new HashMap<>();
+                    }
+                    int[] count = elementCounts.computeIfAbsent(field.number, n -> new int[1]);
+                    if (wireType == WIRE_LENGTH_DELIMITED && field.scalar != null && field.scalar.wireType != WIRE_LENGTH_DELIMITED) {
+                        // Packed repeated scalars
+                        int limit = reader.limit(position(reader.readVarint()));
+                        while (reader.hasRemaining()) {
+                            PathNode element = child.indexes.get(count[0]++);
+                            if (element == null) {
+                                skip(field.scalar.wireType, key);
+                            } else {
+                                set(element, scalar(field, field.scalar.wireType));
+                            }
+                        }
+                        reader.restoreLimit(limit);
+                    } else {
+                        PathNode element = child.indexes.get(count[0]++);
+                        if (element == null) {
+                            skip(wireType, key);
+                        } else {
+                            value(element, field, wireType);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void value(final PathNode node, final Field field, final int wireType) throws IOException {
+            if (field.message != null) {
+                expect(wireType, WIRE_LENGTH_DELIMITED, field);
+                // Occurrences of an embedded message are merged, so their fields are read into the same nodes
+                int limit = reader.limit(position(reader.readVarint()));
+                message(node, field.message);
+                reader.restoreLimit(limit);
+            } else if (field.map) {
+                set(node, JsonFieldExtractor.CONTAINER);
+                skip(wireType, 0);
+            } else {
+                set(node, scalar(field, wireType));
+            }
+        }
+
+        private Object scalar(final Field field, final int wireType) throws IOException {
+            Scalar scalar = field.scalar;
+            expect(wireType, scalar.wireType, field);
+            switch (scalar) {
+                case INT32:
+                    return (int) reader.readVarint();
+                case INT64:
+                    return reader.readVarint();
+                case UINT32:
+                    return reader.readVarint() & 0xffffffffL;
+                case UINT64:
+                    return unsigned(reader.readVarint());
+                case SINT32:
+                    return (int) reader.readZigZag();
+                case SINT64:
+                    return reader.readZigZag();
+                case BOOL:
+                    return reader.readVarint() != 0;
+                case ENUM:
+                    int number = (int) reader.readVarint();
+                    String symbol = field.enumType.symbols.get(number);
+                    return symbol != null ? symbol : number;
+                case FIXED32:
+                    return reader.readFixed32() & 0xffffffffL;
+                case SFIXED32:
+                    return reader.readFixed32();
+                case FLOAT:
+                    return (double) Float.intBitsToFloat(reader.readFixed32());
+                case FIXED64:
+                    return unsigned(reader.readFixed64());
+                case SFIXED64:
+                    return reader.readFixed64();
+                case DOUBLE:
+                    return Double.longBitsToDouble(reader.readFixed64());
+                case STRING:
+                    return reader.readString(reader.readVarint());
+                case BYTES:
+                    return Base64.getEncoder().encodeToString(reader.readBytes(reader.readVarint()));
+                default:
+                    throw new IllegalStateException("Unexpected type " + scalar);
+            }
+        }
+
+        private void skip(final int wireType, final long key) throws IOException {
+            switch (wireType) {
+                case WIRE_VARINT:
+                    reader.readVarint();
+                    break;
+                case WIRE_FIXED64:
+                    reader.skip(Long.BYTES);
+                    break;
+                case WIRE_LENGTH_DELIMITED:
+                    reader.skip(reader.readVarint());
+                    break;
+                case WIRE_START_GROUP:
+                    // Skip up to the end of the group, which has the same field number
+                    long endKey = (key & ~0x7L) | WIRE_END_GROUP;
+                    for (long next = reader.readVarint(); next != endKey; next = reader.readVarint()) {
+                        skip((int) (next & 0x7), next);
+                    }
+                    break;
+                case WIRE_FIXED32:
+                    reader.skip(Integer.BYTES);
+                    break;
+                default:
+                    throw new IOException("Unexpected wire type " + wireType);
+            }
+        }
+
+        /**
+         * Resolve the requested fields missing from the messages which were read, as the content does not encode the fields holding their
+         * default value.
+         */
+        private void resolveMissing(final PathNode node, final MessageType type) {
+            if (!seen[node.id] || node.properties == null) {
+                return;
+            }
+            for (Map.Entry<String, PathNode> property : node.properties.entrySet()) {
+                Field field = type.fieldsByName.get(property.getKey());
+                PathNode child = property.getValue();
+                if (field.repeated) {
+                    if (!seen[child.id]) {
+                        // An empty repeated field is not encoded
+                        set(child, JsonFieldExtractor.CONTAINER);
+                    } else if (field.message != null && child.indexes != null) {
+                        for (PathNode element : child.indexes.values()) {
+                            resolveMissing(element, field.message);
+                        }
+                    }
+                } else if (field.message != null) {
+                    resolveMissing(child, field.message);
+                    if (!seen[child.id]) {
+                        set(child, null);
+                    }
+                } else if (child.target >= 0 && values[child.target] == JsonFieldExtractor.NOT_FOUND) {
+                    // An empty map is not encoded either
+                    set(child, field.map ? JsonFieldExtractor.CONTAINER : field.presence ? null : defaultValue(field));
+                }
+            }
+        }
+
+        private int position(final long length) throws IOException {
+            if (length < 0 || length > reader.limit() - reader.position()) {
+                throw new IOException("Truncated content");
+            }
+            return reader.position() + (int) length;
+        }
+
+        private void set(final PathNode node, final Object value) {
+            if (node.target >= 0) {
+                values[node.target] = value;
+            }
+        }
+
+        private static void expect(final int wireType, final int expected, final Field field) throws IOException {
+            if (wireType != expected) {
+                throw new IOException("Unexpected wire type " + wireType + " for field [" + field.name + "]");
+            }
+        }
+
+        private static Number unsigned(final long value) {
+            return value >= 0 ? (Number) value : new BigInteger(Long.toUnsignedString(value));
+        }
+
+        private static Object defaultValue(final Field field) {
+            switch (field.scalar) {
+                case ENUM:
+                    return field.enumType.symbols.getOrDefault(0, field.enumType.first);
+                case INT32:
+                case SINT32:
+                case SFIXED32:
+                    return 0;
+                case INT64:
+                case UINT32:
+                case UINT64:
+                case SINT64:
+                case FIXED32:
+                case FIXED64:
+                case SFIXED64:
+                    return 0L;
+                case FLOAT:
+                case DOUBLE:
+                    return 0.0;
+                case BOOL:
+                    return Boolean.FALSE;
+                default:
+                    return "";
+            }
+        }
+    }
+
+    /**
+     * Parser of the subset of the <code>.proto</code> language describing messages and enums. Services, extensions, options and imports are
+     * ignored.
+     */
+    private static class DefinitionParser {
+
+        private final String definition;
+        private final Map<String, MessageType> messages = new LinkedHashMap<>();
+        private final Map<String, EnumType> enums = new HashMap<>();
+        private final List<Field> fields = new ArrayList<>();
+        private int position;
+        private String token;
+        private String packageName = "";
+        private boolean proto3;
+
+        private DefinitionParser(final String definition) {
+            this.definition = definition;
+            next();
+        }
+
+        private void parse() {
+            while (token != null) {
+                switch (token) {
+                    case "syntax":
+                    case "edition":
+                        next();
+                        accept("=");
+                        proto3 = "proto3".equals(unquote(token));
+                        next();
+                        accept(";");
+                        break;
+                    case "package":
+                        next();
+                        packageName = token;
+                        next();
+                        accept(";");
+                        break;
+                    case "message":
+                        next();
+                        message("." + qualified(packageName, ""));
+                        break;
+                    case "enum":
+                        next();
+                        enumeration("." + qualified(packageName, ""));
+                        break;
+                    case "service":
+                    case "extend":
+                        skipStatement();
+                        break;
+                    default:
+                        // import, option and empty statements
+                        skipStatement();
+                }
+            }
+        }
+
+        private void message(final String scope) {
+            MessageType type = new MessageType(qualified(scope, token));
+            messages.put(type.fullName, type);
+            next();
+            accept("{");
+            while (!"}".equals(token)) {
+                if (token == null) {
+                    throw new IllegalArgumentException("Unexpected end of Protobuf schema in message [" + type.fullName + "]");
+                }
+                switch (token) {
+                    case "message":
+                        next();
+                        message(type.fullName);
+                        break;
+                    case "enum":
+                        next();
+                        enumeration(type.fullName);
+                        break;
+                    case "oneof":
+                        next();
+                        next();
+                        accept("{");
+                        while (!"}".equals(token)) {
+                            if ("option".equals(token)) {
+                                skipStatement();
+                            } else {
+                                field(type, true);
+                            }
+                        }
+                        next();
+                        break;
+                    case "option":
+                    case "reserved":
+                    case "extensions":
+                    case "extend":
+                    case ";":
+                        skipStatement();
+                        break;
+                    default:
+                        field(type, false);
+                }
+            }
+            next();
+        }
+
+        private void field(final MessageType type, final boolean oneOf) {
+            Field field = new Field();
+            field.scope = type.fullName;
+            field.presence = !proto3 || oneOf;
+            if ("repeated".equals(token)) {
+                field.repeated = true;
+                next();
+            } else if ("optional".equals(token) || "required".equals(token)) {
+                field.presence = true;
+                next();
+            }
+            if ("group".equals(token)) {
+                // Groups are deprecated and skipped as unknown fields
+                skipStatement();
+                return;
+            }
+            if ("map".equals(token)) {
+                field.map = true;
+                while (!">".equals(token)) {
+                    next();
+                    if (token == null) {
+                        throw new IllegalArgumentException("Unexpected end of Protobuf schema in map field");
+                    }
+                }
+            } else {
+                field.typeName = token;
+            }
+            next();
+            field.name = token;
+            next();
+            accept("=");
+            field.number = number(token);
+            next();
+            if ("[".equals(token)) {
+                while (!"]".equals(token)) {
+                    next();
+                    if (token == null) {
+                        throw new IllegalArgumentException("Unexpected end of Protobuf schema in field [" + field.name + "] options");
+                    }
+                }
+                next();
+            }
+            accept(";");
+            if (type.fieldsByNumber.put(field.number, field) != null || type.fieldsByName.put(field.name, field) != null) {
+                throw new IllegalArgumentException(
+                    "Field [" + field.name + "] of Protobuf message [" + type.fullName + "] is defined twice"
+                );
+            }
+            fields.add(field);
+        }
+
+        private void enumeration(final String scope) {
+            EnumType type = new EnumType();
+            enums.put(qualified(scope, token), type);
+            next();
+            accept("{");
+            while (!"}".equals(token)) {
+                if (token == null) {
+                    throw new IllegalArgumentException("Unexpected end of Protobuf schema in enum");
+                }
+                if ("option".equals(token) || "reserved".equals(token) || ";".equals(token)) {
+                    skipStatement();
+                    continue;
+                }
+                String name = token;
+                next();
+                accept("=");
+                int number = number(token);
+                skipStatement();
+                type.symbols.putIfAbsent(number, name);
+                if (type.first == null) {
+                    type.first = name;
+                }
+            }
+            next();
+        }
+
+        private void resolveTypes() {
+            for (Field field : fields) {
+                if (field.map) {
+                    continue;
+                }
+                field.scalar = Scalar.of(field.typeName);
+                if (field.scalar != null) {
+                    continue;
+                }
+                // Search the type from the innermost scope of the field to the outermost one
+                String scope = field.scope;
+                while (field.message == null && field.enumType == null) {
+                    String name = field.typeName.startsWith(".") || scope.isEmpty() ? field.typeName : qualified(scope, field.typeName);
+                    if (!name.startsWith(".")) {
+                        name = "." + name;
+                    }
+                    field.message = messages.get(name);
+                    field.enumType = enums.get(name);
+                    if (scope.isEmpty() || field.typeName.startsWith(".")) {
+                        break;
+                    }
+                    scope = scope.substring(0, scope.lastIndexOf('.'));
+                }
+                if (field.enumType != null) {
+                    field.scalar = Scalar.ENUM;
+                } else if (field.message == null) {
+                    throw new IllegalArgumentException(
+                        "Protobuf type [" + field.typeName + "] of field [" + field.name + "] is not defined"
+                    );
+                }
+            }
+        }
+
+        private MessageType messageType(final String name) {
+            if (name == null || name.isBlank()) {
+                return messages
+                    .values()
+                    .stream()
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Protobuf schema has no message"));
+            }
+            MessageType type = messages.get(name.startsWith(".") ? name : qualified("." + qualified(packageName, ""), name));
+            if (type == null) {
+                type = messages.get("." + name);
+            }
+            if (type == null) {
+                throw new IllegalArgumentException("Protobuf message [" + name + "] is not defined by the schema");
+            }
+            return type;
+        }
+
+        private static String qualified(final String scope, final String name) {
+            if (scope.isEmpty() || scope.equals(".")) {
+                return scope + name;
+            }
+            return name.isEmpty() ? scope : scope + "." + name;
+        }
+
+        private static int number(final String token) {
+            try {
+                boolean hexadecimal = token.startsWith("0x") || token.startsWith("0X");
+                return hexadecimal ? Integer.parseInt(token.substring(2), 16) : Integer.parseInt(token);
+            } catch (NumberFormatException | NullPointerException e) {
+                throw new IllegalArgumentException("Invalid number [" + token + "] in Protobuf schema");
+            }
+        }
+
+        private static String unquote(final String token) {
+            return token != null && token.length() >= 2 ? token.substring(1, token.length() - 1) : token;
+        }
+
+        /**
+         * Skip the current statement, up to its <code>;</code> or its block.
+         */
+        private void skipStatement() {
+            int depth = 0;
+            while (token != null) {
+                String current = token;
+                next();
+                if ("{".equals(current)) {
+                    depth++;
+                } else if ("}".equals(current) && --depth == 0) {
+                    return;
+                } else if (";".equals(current) && depth == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void accept(final String expected) {
+            if (!expected.equals(token)) {
+                throw new IllegalArgumentException("Expected [" + expected + "] but found [" + token + "] in Protobuf schema");
+            }
+            next();
+        }
+
+        /**
+         * Move to the next token: an identifier, a number, a quoted string or a symbol. Comments are ignored.
+         */
+        private void next() {
+            while (position < definition.length()) {
+                char current = definition.charAt(position);
+                if (Character.isWhitespace(current)) {
+                    position++;
+                } else if (definition.startsWith("//", position)) {
+                    int end = definition.indexOf('\n', position);
+                    position = end < 0 ? definition.length() : end + 1;
+                } else if (definition.startsWith("/*", position)) {
+                    int end = definition.indexOf("*/", position + 2);
+                    position = end < 0 ? definition.length() : end + 2;
+                } else {
+                    break;
+                }
+            }
+            if (position >= definition.length()) {
+                token = null;
+                return;
+            }
+            int start = position;
+            char first = definition.charAt(position);
+            if (first == '"' || first == '\'') {
+                position++;
+                while (position < definition.length() && definition.charAt(position) != first) {
+                    position += definition.charAt(position) == '\\' ? 2 : 1;
+                }
+                position = Math.min(position + 1, definition.length());
+            } else if (Character.isLetterOrDigit(first) || first == '_' || first == '.' || first == '-' || first == '+') {
+                position++;
+                while (position < definition.length() && isIdentifierChar(definition.charAt(position))) {
+                    position++;
+                }
+            } else {
+                position++;
+            }
+            token = definition.substring(start, position);
+        }
+
+        private static boolean isIdentifierChar(final char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+        }
+    }
+
+    private enum Scalar {
+        DOUBLE(WIRE_FIXED64),
+        FLOAT(WIRE_FIXED32),
+        INT32(WIRE_VARINT),
+        INT64(WIRE_VARINT),
+        UINT32(WIRE_VARINT),
+        UINT64(WIRE_VARINT),
+        SINT32(WIRE_VARINT),
+        SINT64(WIRE_VARINT),
+        FIXED32(WIRE_FIXED32),
+        FIXED64(WIRE_FIXED64),
+        SFIXED32(WIRE_FIXED32),
+        SFIXED64(WIRE_FIXED64),
+        BOOL(WIRE_VARINT),
+        STRING(WIRE_LENGTH_DELIMITED),
+        BYTES(WIRE_LENGTH_DELIMITED),
+        ENUM(WIRE_VARINT);
+
+        private final int wireType;
+
+        Scalar(final int wireType) {
+            this.wireType = wireType;
+        }
+
+        private static Scalar of(final String typeName) {
+            if ("enum".equals(typeName)) {
+                return null;
+            }
+            for (Scalar scalar : values()) {
+                if (scalar.name().toLowerCase().equals(typeName)) {
+                    return scalar;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class MessageType {
+
+        private final String fullName;
+        private final Map<String, Field> fieldsByName = new HashMap<>();
+        private final Map<Integer, Field> fieldsByNumber = new HashMap<>();
+
+        private MessageType(final String fullName) {
+            this.fullName = fullName;
+        }
+    }
+
+    private static class EnumType {
+
+        private final Map<Integer, String> symbols = new HashMap<>();
+        private String first;
+    }
+
+    private static class Field {
+
+        private String name;
+        private int number;
+        private String scope;
+        private String typeName;
+        private boolean repeated;
+        private boolean map;
+
+        /**
+         * Whether the field tracks its presence, so that a missing field is <code>null</code> rather than its default value.
+         */
+        private boolean presence;
+
+        private Scalar scalar;
+        private MessageType message;
+        private EnumType enumType;
+    }
+}
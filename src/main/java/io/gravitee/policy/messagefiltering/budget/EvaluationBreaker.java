@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.budget;
+
+import io.gravitee.policy.messagefiltering.configuration.EvaluationBudgetConfiguration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker on the time spent evaluating a filter.
+ * <p>
+ * An evaluation can not be interrupted without stalling the thread running it, so evaluations are timed once done: an evaluation over
+ * budget is reported to the caller which decides the message as if the evaluation had failed. Once <code>violations</code> evaluations
+ * went over budget within <code>window</code>, the breaker opens and messages must be decided without evaluation. After
+ * <code>coolDown</code>, a single probe evaluation is allowed: the breaker closes if it fits in the budget and opens again otherwise.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class EvaluationBreaker {
+
+    public enum State {
+        /**
+         * The filter is evaluated on each message.
+         */
+        CLOSED,
+
+        /**
+         * The filter is too slow, messages are decided without evaluation.
+         */
+        OPEN,
+
+        /**
+         * A probe evaluation is in progress, other messages are decided without evaluation.
+         */
+        HALF_OPEN,
+    }
+
+    private final String filter;
+    private final long budgetNanos;
+    private final long windowNanos;
+    private final long coolDownNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final LongAdder overBudget = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder trips = new LongAdder();
+
+    /**
+     * Times of the latest evaluations over budget, used as a ring.
+     */
+    private final long[] violations;
+    private int next;
+    private int count;
+    private volatile long openUntil;
+
+    public EvaluationBreaker(final EvaluationBudgetConfiguration configuration, final String filter) {
+        this(configuration, filter, System::nanoTime);
+    }
+
+    EvaluationBreaker(final EvaluationBudgetConfiguration configuration, final String filter, final LongSupplier clock) {
+        this.filter = filter;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getBudget());
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getWindow());
+        this.coolDownNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getCoolDown());
+        this.violations = new long[Math.max(1, configuration.getViolations())];
+        this.clock = clock;
+    }
+
+    /**
+     * Tell whether the filter can be evaluated on the current message.
+     *
+     * @return <code>true</code> if the filter can be evaluated, <code>false</code> if the message must be decided without evaluation
+     */
+    public boolean allow() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && clock.getAsLong() - openUntil >= 0 && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return true;
+        }
+        shortCircuited.increment();
+        return false;
+    }
+
+    /**
+     * Record the duration of an evaluation allowed by {@link #allow()}.
+     *
+     * @param nanos the duration of the evaluation, in nanoseconds
+     * @return <code>true</code> if the evaluation went over budget, <code>false</code> otherwise
+     */
+    public boolean record(final long nanos) {
+        if (nanos <= budgetNanos) {
+            if (state.get() == State.HALF_OPEN && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                log.info("Message filter [{}] is back within its evaluation budget, messages are evaluated again", filter);
+            }
+            return false;
+        }
+        overBudget.increment();
+        long now = clock.getAsLong();
+        if (state.get() == State.HALF_OPEN) {
+            open(now, State.HALF_OPEN);
+        } else if (violated(now)) {
+            open(now, State.CLOSED);
+        }
+        return true;
+    }
+
+    private synchronized boolean violated(final long now) {
+        violations[next] = now;
+        next = (next + 1) % violations.length;
+        count = Math.min(count + 1, violations.length);
+        // Once the ring is full, the next slot holds the oldest of the latest violations
+        if (count == violations.length && now - violations[next] <= windowNanos) {
+            count = 0;
+            return true;
+        }
+        return false;
+    }
+
+    private void open(final long now, final State from) {
+        openUntil = now + coolDownNanos;
+        if (state.compareAndSet(from, State.OPEN)) {
+            trips.increment();
+            log.warn(
+                "Message filter [{}] exceeded its evaluation budget of {} ms, messages are decided without evaluation for {} ms",
+                filter,
+                TimeUnit.NANOSECONDS.toMillis(budgetNanos),
+                TimeUnit.NANOSECONDS.toMillis(coolDownNanos)
+            );
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return the number of evaluations which went over budget
+     */
+    public long getOverBudget() {
+        return overBudget.sum();
+    }
+
+    /**
+     * @return the number of messages decided without evaluation because the breaker was open
+     */
+    public long getShortCircuited() {
+        return shortCircuited.sum();
+    }
+
+    /**
+     * @return the number of times the breaker opened
+     */
+    public long getTrips() {
+        return trips.sum();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * @author GraviteeSource Team
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class BinaryContentConfiguration {
+
+    /**
+     * Option to read the content paths referenced by the filter from a binary content described by a schema
+     */
+    private boolean enabled;
+
+    /**
+     * Binary encoding of the content
+     */
+    private BinaryFormat format = BinaryFormat.AVRO;
+
+    /**
+     * Inline schema of the content
+     */
+    private String schema;
+
+    /**
+     * Path of a local file holding the schema of the content, used when no inline schema is given
+     */
+    private String schemaFile;
+
+    /**
+     * With {@link BinaryFormat#PROTOBUF}, the name of the message type of the content, the first message of the schema by default
+     */
+    private String messageType;
+
+    /**
+     * Number of bytes preceding the encoded content (i.e. 5 for the Confluent wire format of Avro)
+     */
+    private int offset;
+}
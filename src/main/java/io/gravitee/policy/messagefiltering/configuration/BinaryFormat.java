@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.configuration;
+
+/**
+ * Binary encoding of the content of the messages.
+ *
+ * @author GraviteeSource Team
+ */
+public enum BinaryFormat {
+    /**
+     * Avro binary encoding of a single datum, described by an Avro schema (JSON).
+     */
+    AVRO,
+
+    /**
+     * Protocol Buffers wire format of a message, described by a <code>.proto</code> definition.
+     */
+    PROTOBUF,
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.configuration;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * @author GraviteeSource Team
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ContentMatchConfiguration {
+
+    /**
+     * Option to filter messages according to keywords or patterns found in their content
+     */
+    private boolean enabled;
+
+    /**
+     * Keywords searched in the content of the messages
+     */
+    private List<String> keywords;
+
+    /**
+     * Regular expressions searched in the content of the messages
+     */
+    private List<String> patterns;
+
+    /**
+     * Option to ignore the case of ASCII letters when searching keywords and patterns
+     */
+    private boolean ignoreCase;
+
+    /**
+     * Whether the messages whose content matches are the only ones propagated, or the ones filtered
+     */
+    private ContentMatchMode mode = ContentMatchMode.ALLOW;
+
+    /**
+     * Maximum time in milliseconds spent matching the patterns against the content of a message, 0 for no limit
+     */
+    private long patternTimeout = 50;
+}
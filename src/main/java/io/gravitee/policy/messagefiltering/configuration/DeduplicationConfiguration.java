@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * @author GraviteeSource Team
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class DeduplicationConfiguration {
+
+    /**
+     * Option to filter messages already seen within the window
+     */
+    private boolean enabled;
+
+    /**
+     * Part of the message identifying duplicates
+     */
+    private MessageKeySource source = MessageKeySource.ID;
+
+    /**
+     * Name of the header, or expression, identifying duplicates
+     */
+    private String key;
+
+    /**
+     * Time window in milliseconds during which a message is a duplicate of a previous one with the same key
+     */
+    private long window = 60_000;
+
+    /**
+     * Maximum number of distinct keys remembered per window
+     */
+    private int maxKeys = 100_000;
+}
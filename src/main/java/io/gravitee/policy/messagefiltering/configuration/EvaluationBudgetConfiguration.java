@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * @author GraviteeSource Team
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class EvaluationBudgetConfiguration {
+
+    /**
+     * Option to limit the time spent evaluating the filter on a message
+     */
+    private boolean enabled;
+
+    /**
+     * Maximum time in milliseconds the evaluation of the filter on a message should take
+     */
+    private long budget = 10;
+
+    /**
+     * Number of evaluations over budget within the window which opens the circuit breaker
+     */
+    private int violations = 5;
+
+    /**
+     * Time in milliseconds over which evaluations over budget are counted
+     */
+    private long window = 10_000;
+
+    /**
+     * Time in milliseconds during which messages are decided without evaluation once the circuit breaker is open
+     */
+    private long coolDown = 30_000;
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * @author GraviteeSource Team
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class MembershipConfiguration {
+
+    /**
+     * Option to filter messages according to the membership of one of their keys to a set
+     */
+    private boolean enabled;
+
+    /**
+     * Part of the message holding the key to test
+     */
+    private MembershipKeySource source = MembershipKeySource.HEADER;
+
+    /**
+     * Name of the header, attribute or metadata, or JSON path, of the key to test
+     */
+    private String key;
+
+    /**
+     * Path of the local file listing the members of the set, one per line
+     */
+    private String file;
+
+    /**
+     * Whether the members of the set are allowed or denied
+     */
+    private MembershipMode mode = MembershipMode.ALLOW;
+
+    /**
+     * Option to check a Bloom filter before looking up the set
+     */
+    private boolean bloomFilter;
+}
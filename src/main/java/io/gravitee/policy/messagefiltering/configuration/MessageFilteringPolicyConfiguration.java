@@ -16,6 +16,7 @@
 package io.gravitee.policy.messagefiltering.configuration;
 
 import io.gravitee.policy.api.PolicyConfiguration;
+import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -36,13 +37,83 @@ public class MessageFilteringPolicyConfiguration implements PolicyConfiguration
      */
     private String filter;
 
+    /**
+     * Additional conditions to apply in order to filter messages, combined with the filter using the conditions operator
+     */
+    private List<String> conditions;
+
+    /**
+     * Operator used to combine the filter and the conditions
+     */
+    private ConditionsOperator conditionsOperator = ConditionsOperator.AND;
+
+    /**
+     * Membership of a message key to a set loaded from a local file, combined with the filter and the conditions
+     */
+    private MembershipConfiguration membership;
+
+    /**
+     * Keywords and regular expressions searched in the raw content of the messages
+     */
+    private ContentMatchConfiguration contentMatch;
+
+    /**
+     * Suppression of the messages already seen within a time window, applied to the messages matching the filter and the conditions
+     */
+    private DeduplicationConfiguration deduplication;
+
+    /**
+     * Sampling of the messages, applied to the messages which are not filtered otherwise
+     */
+    private SamplingConfiguration sampling;
+
     /**
      * Option to ack filtered message. The ack will notify the source of the message that it has been handled.
      */
     private boolean ackFilteredMessage = true;
 
+    /**
+     * Number of filtered messages acknowledged together, 1 to acknowledge each filtered message as soon as it is filtered
+     */
+    private int ackBatchSize = 1;
+
+    /**
+     * Maximum time in milliseconds a filtered message waits for its batch to be acknowledged
+     */
+    private long ackBatchInterval = 500;
+
+    /**
+     * Reuse of the filter results for repeated messages
+     */
+    private MemoizationConfiguration memoization;
+
+    /**
+     * Maximum time spent evaluating the filter on a message, and circuit breaker applied when the filter is too slow
+     */
+    private EvaluationBudgetConfiguration evaluationBudget;
+
+    /**
+     * Number of messages of a connection evaluated concurrently on worker threads, 1 to evaluate them one after another
+     */
+    private int parallelism = 1;
+
+    /**
+     * Evaluation of the messages of a connection by small batches bounded in size and time
+     */
+    private MicroBatchConfiguration microBatch;
+
     /**
      * Option to filter message when an error occurs on applying filter on it
      */
     private boolean filterMessageOnFilteringError = true;
+
+    /**
+     * Engine used to evaluate the filter condition
+     */
+    private FilterEngine engine = FilterEngine.EL;
+
+    /**
+     * Binary encoding and schema of the content of the messages, whose fields are then read natively by the filter
+     */
+    private BinaryContentConfiguration binaryContent;
 }
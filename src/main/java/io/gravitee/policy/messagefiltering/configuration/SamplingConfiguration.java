@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * @author GraviteeSource Team
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class SamplingConfiguration {
+
+    /**
+     * Option to sample messages
+     */
+    private boolean enabled;
+
+    /**
+     * How messages are sampled
+     */
+    private SamplingMode mode = SamplingMode.ONE_IN_N;
+
+    /**
+     * With {@link SamplingMode#ONE_IN_N}, the number of messages out of which one is kept
+     */
+    private int n = 10;
+
+    /**
+     * With {@link SamplingMode#PROBABILITY}, the probability to keep a message, between 0 and 1
+     */
+    private double probability = 0.1;
+
+    /**
+     * With {@link SamplingMode#RATE_PER_KEY}, the part of the message the key is taken from
+     */
+    private MessageKeySource source = MessageKeySource.HEADER;
+
+    /**
+     * With {@link SamplingMode#RATE_PER_KEY}, the name of the header, or the expression, of the key
+     */
+    private String key;
+
+    /**
+     * With {@link SamplingMode#RATE_PER_KEY}, the number of messages kept per second and per key
+     */
+    private double rate = 10;
+
+    /**
+     * With {@link SamplingMode#RATE_PER_KEY}, the number of messages which can be kept at once per key
+     */
+    private int burst = 10;
+
+    /**
+     * With {@link SamplingMode#RATE_PER_KEY}, the maximum number of keys tracked at once
+     */
+    private int maxKeys = 10_000;
+
+    /**
+     * With {@link SamplingMode#RATE_PER_KEY}, the time in milliseconds after which an idle key is not tracked anymore
+     */
+    private long idleTimeout = 60_000;
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.configuration;
+
+/**
+ * How messages are sampled.
+ *
+ * @author GraviteeSource Team
+ */
+public enum SamplingMode {
+    /**
+     * Keep one message out of N.
+     */
+    ONE_IN_N,
+
+    /**
+     * Keep each message with a given probability.
+     */
+    PROBABILITY,
+
+    /**
+     * Keep up to a given rate of messages per key, with a token bucket per key.
+     */
+    RATE_PER_KEY,
+}
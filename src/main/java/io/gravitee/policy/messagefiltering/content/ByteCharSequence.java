@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.content;
+
+import java.nio.ByteBuffer;
+
+/**
+ * View of raw bytes as characters, each byte being the ISO-8859-1 character of the same value, so that regular expressions can be run on a
+ * content without decoding nor copying it.
+ * <p>
+ * As <code>java.util.regex</code> backtracks, a pattern may take exponential time on crafted contents. When a deadline is given, reading the
+ * characters past it fails the matching with an {@link IllegalStateException}.
+ *
+ * @author GraviteeSource Team
+ */
+class ByteCharSequence implements CharSequence {
+
+    /**
+     * The clock is only read once every 4096 characters.
+     */
+    private static final int DEADLINE_CHECK_MASK = 0xfff;
+
+    private final ByteBuffer bytes;
+    private final int start;
+    private final int length;
+    private final long deadline;
+    private final boolean bounded;
+    private int reads;
+
+    ByteCharSequence(final ByteBuffer bytes) {
+        this(bytes, bytes.position(), bytes.remaining(), 0, false);
+    }
+
+    /**
+     * @param deadline the {@link System#nanoTime()} after which reading characters fails
+     */
+    ByteCharSequence(final ByteBuffer bytes, final long deadline) {
+        this(bytes, bytes.position(), bytes.remaining(), deadline, true);
+    }
+
+    private ByteCharSequence(final ByteBuffer bytes, final int start, final int length, final long deadline, final boolean bounded) {
+        this.bytes = bytes;
+        this.start = start;
+        this.length = length;
+        this.deadline = deadline;
+        this.bounded = bounded;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (bounded && (++reads & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0) {
+            throw new IllegalStateException("Matching the content patterns took too long");
+        }
+        return (char) (bytes.get(start + index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(final int from, final int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new ByteCharSequence(bytes, start + from, to - from, deadline, bounded);
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (bytes.get(start + i) & 0xff);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.content;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.configuration.ContentMatchConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.ContentMatchMode;
+import io.gravitee.policy.messagefiltering.filter.MessageFilter;
+import io.netty.buffer.ByteBuf;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Filter messages according to keywords or regular expressions found in their raw content.
+ * <p>
+ * Keywords are searched all at once with a {@link KeywordAutomaton}, and regular expressions are combined into a single alternation compiled once.
+ * Both run on the bytes of the content, without decoding it: regular expressions see each byte as one character, non-ASCII characters of a pattern
+ * being replaced by their UTF-8 bytes so that literal ones still match. The search stops on the first keyword or pattern found.
+ * <p>
+ * Patterns are user supplied and <code>java.util.regex</code> backtracks, so the time spent matching them is bounded by the configured timeout:
+ * a content taking longer fails the evaluation, which is then handled as any other evaluation error.
+ *
+ * @author GraviteeSource Team
+ */
+public class ContentMatcher implements MessageFilter {
+
+    private final KeywordAutomaton keywords;
+    private final Pattern patterns;
+    private final boolean allow;
+    private final long patternTimeoutNanos;
+
+    public ContentMatcher(final ContentMatchConfiguration configuration) {
+        this.keywords = KeywordAutomaton.compile(configuration.getKeywords(), configuration.isIgnoreCase());
+        this.patterns = compile(configuration.getPatterns(), configuration.isIgnoreCase());
+        this.allow = configuration.getMode() != ContentMatchMode.DENY;
+        this.patternTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getPatternTimeout());
+    }
+
+    @Override
+    public boolean evaluate(final MessageExecutionContext ctx, final Message message) {
+        return matches(message.content()) == allow;
+    }
+
+    private boolean matches(final Buffer content) {
+        if (content == null) {
+            return false;
+        }
+        ByteBuf byteBuf = content.getNativeBuffer();
+        ByteBuffer bytes = byteBuf != null ? byteBuf.nioBuffer() : ByteBuffer.wrap(content.getBytes());
+        if (keywords != null && keywords.find(bytes)) {
+            return true;
+        }
+        if (patterns == null) {
+            return false;
+        }
+        ByteCharSequence chars = patternTimeoutNanos > 0
+            ? new ByteCharSequence(bytes, System.nanoTime() + patternTimeoutNanos)
+            : new ByteCharSequence(bytes);
+        return patterns.matcher(chars).find();
+    }
+
+    private static Pattern compile(final List<String> patterns, final boolean ignoreCase) {
+        if (patterns == null || patterns.stream().allMatch(pattern -> pattern == null || pattern.isEmpty())) {
+            return null;
+        }
+        String combined = patterns
+            .stream()
+            .filter(pattern -> pattern != null && !pattern.isEmpty())
+            .map(pattern -> "(?:" + new String(pattern.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1) + ")")
+            .collect(Collectors.joining("|"));
+        return Pattern.compile(combined, ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.content;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton searching a set of keywords in raw bytes, in a single pass whatever the number of keywords.
+ * <p>
+ * Keywords are searched as their UTF-8 bytes, so the content is never decoded. The automaton is compiled into a deterministic one, so that each byte
+ * costs a single table lookup. To keep the table small, bytes are first mapped to classes: all the bytes which do not appear in any keyword share
+ * the same class.
+ *
+ * @author GraviteeSource Team
+ */
+public final class KeywordAutomaton {
+
+    private final int[] classes;
+    private final int states;
+    private final int[] transitions;
+
+    private KeywordAutomaton(final int[] classes, final int states, final int[] transitions) {
+        this.classes = classes;
+        this.states = states;
+        this.transitions = transitions;
+    }
+
+    /**
+     * Compile the given keywords. Empty keywords are ignored.
+     *
+     * @param keywords the keywords
+     * @param ignoreCase <code>true</code> to ignore the case of ASCII letters
+     * @return the automaton, or <code>null</code> if there is no keyword to search
+     */
+    public static KeywordAutomaton compile(final List<String> keywords, final boolean ignoreCase) {
+        List<byte[]> patterns = new ArrayList<>();
+        if (keywords != null) {
+            for (String keyword : keywords) {
+                if (keyword != null && !keyword.isEmpty()) {
+                    patterns.add(keyword.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        if (patterns.isEmpty()) {
+            return null;
+        }
+
+        int[] classes = new int[256];
+        int classCount = 1;
+        for (byte[] pattern : patterns) {
+            for (byte b : pattern) {
+                int value = fold(b & 0xff, ignoreCase);
+                if (classes[value] == 0) {
+                    classes[value] = classCount++;
+                }
+            }
+        }
+        if (ignoreCase) {
+            for (int c = 'A'; c <= 'Z'; c++) {
+                classes[c] = classes[c + ('a' - 'A')];
+            }
+        }
+
+        // Trie of the keywords, -1 marking a missing edge
+        List<int[]> edges = new ArrayList<>();
+        List<Boolean> terminal = new ArrayList<>();
+        edges.add(newState(classCount));
+        terminal.add(false);
+        for (byte[] pattern : patterns) {
+            int state = 0;
+            for (byte b : pattern) {
+                int c = classes[b & 0xff];
+                if (edges.get(state)[c] < 0) {
+                    edges.get(state)[c] = edges.size();
+                    edges.add(newState(classCount));
+                    terminal.add(false);
+                }
+                state = edges.get(state)[c];
+            }
+            terminal.set(state, true);
+        }
+
+        // Breadth first completion of the missing edges with the failure links
+        int stateCount = edges.size();
+        int[] next = new int[stateCount * classCount];
+        boolean[] accepting = new boolean[stateCount];
+        int[] failure = new int[stateCount];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < classCount; c++) {
+            int child = edges.get(0)[c];
+            next[c] = child < 0 ? 0 : child;
+            if (child > 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            accepting[state] = terminal.get(state) || accepting[failure[state]];
+            for (int c = 0; c < classCount; c++) {
+                int child = edges.get(state)[c];
+                int fallback = next[failure[state] * classCount + c];
+                if (child < 0) {
+                    next[state * classCount + c] = fallback;
+                } else {
+                    next[state * classCount + c] = child;
+                    failure[child] = fallback;
+                    queue.add(child);
+                }
+            }
+        }
+
+        // Transitions hold the offset of the next state in the table, negated when it is accepting, so that a step is a single lookup
+        int[] transitions = new int[next.length];
+        for (int i = 0; i < next.length; i++) {
+            transitions[i] = accepting[next[i]] ? -1 : next[i] * classCount;
+        }
+        return new KeywordAutomaton(classes, stateCount, transitions);
+    }
+
+    /**
+     * Tell whether one of the keywords appears in the remaining bytes of the buffer, stopping on the first one found.
+     *
+     * @param bytes the bytes to search, left untouched
+     * @return <code>true</code> if a keyword has been found, <code>false</code> otherwise
+     */
+    public boolean find(final ByteBuffer bytes) {
+        int offset = 0;
+        if (bytes.hasArray()) {
+            byte[] array = bytes.array();
+            int end = bytes.arrayOffset() + bytes.limit();
+            for (int i = bytes.arrayOffset() + bytes.position(); i < end; i++) {
+                offset = transitions[offset + classes[array[i] & 0xff]];
+                if (offset < 0) {
+                    return true;
+                }
+            }
+        } else {
+            for (int i = bytes.position(); i < bytes.limit(); i++) {
+                offset = transitions[offset + classes[bytes.get(i) & 0xff]];
+                if (offset < 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    int states() {
+        return states;
+    }
+
+    private static int[] newState(final int classCount) {
+        int[] state = new int[classCount];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int fold(final int value, final boolean ignoreCase) {
+        return ignoreCase && value >= 'A' && value <= 'Z' ? value + ('a' - 'A') : value;
+    }
+}
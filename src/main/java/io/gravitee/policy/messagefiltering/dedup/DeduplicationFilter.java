@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.dedup;
+
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.configuration.DeduplicationConfiguration;
+import io.gravitee.policy.messagefiltering.filter.MessageFilter;
+import io.gravitee.policy.messagefiltering.key.MessageKeyResolver;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter the messages whose key has already been seen within the configured window. A message without key is never a duplicate.
+ *
+ * @author GraviteeSource Team
+ */
+public class DeduplicationFilter implements MessageFilter {
+
+    private final MessageKeyResolver keyResolver;
+    private final DeduplicationWindow window;
+
+    public DeduplicationFilter(final DeduplicationConfiguration configuration) {
+        this.keyResolver = new MessageKeyResolver(configuration.getSource(), configuration.getKey());
+        this.window = new DeduplicationWindow(TimeUnit.MILLISECONDS.toNanos(configuration.getWindow()), configuration.getMaxKeys());
+    }
+
+    @Override
+    public boolean evaluate(final MessageExecutionContext ctx, final Message message) {
+        String messageKey = keyResolver.resolve(ctx, message);
+        return messageKey == null || !window.seen(messageKey);
+    }
+}
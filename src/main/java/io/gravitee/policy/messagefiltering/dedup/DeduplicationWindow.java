@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.dedup;
+
+import io.gravitee.policy.messagefiltering.hash.Fingerprints;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free, bounded memory record of the keys seen during a sliding time window.
+ * <p>
+ * The window is split in {@value #BUCKETS} time buckets, each one being an open addressing hash table of 64-bit key fingerprints updated with
+ * compare-and-set operations. A key is recorded in the bucket of the current time, and is remembered as long as this bucket is one of the last
+ * {@value #BUCKETS} ones, i.e. between the window and the window plus a bucket duration. Expired buckets are replaced on rotation.
+ * <p>
+ * Each bucket holds up to a fixed number of keys and a key which can not be recorded in a full bucket is considered as not seen, so a saturated
+ * window may let duplicates through, but never reports an unseen key as a duplicate (except for a fingerprint collision, whose probability is
+ * negligible).
+ *
+ * @author GraviteeSource Team
+ */
+public class DeduplicationWindow {
+
+    static final int BUCKETS = 4;
+    private static final int MAX_PROBES = 32;
+
+    private final long bucketNanos;
+    private final int capacity;
+    private final LongSupplier clock;
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(BUCKETS + 1);
+
+    public DeduplicationWindow(final long windowNanos, final int maxKeys) {
+        this(windowNanos, maxKeys, System::nanoTime);
+    }
+
+    DeduplicationWindow(final long windowNanos, final int maxKeys, final LongSupplier clock) {
+        this.bucketNanos = Math.max(1, windowNanos / BUCKETS);
+        // Keep the load factor of a full bucket under 0.5 so that probe sequences stay short
+        int keysPerBucket = Math.max(1, maxKeys / BUCKETS);
+        this.capacity = Integer.highestOneBit(keysPerBucket * 4 - 1);
+        this.clock = clock;
+    }
+
+    /**
+     * Record the given key, and tell whether it has already been recorded during the window. The window starts when a key is first recorded.
+     *
+     * @param key the key
+     * @return <code>true</code> if the key has already been seen during the window, <code>false</code> otherwise
+     */
+    public boolean seen(final CharSequence key) {
+        long fingerprint = Fingerprints.of(key);
+        long epoch = Math.floorDiv(clock.getAsLong(), bucketNanos);
+        for (int i = 1; i <= BUCKETS; i++) {
+            Bucket previous = buckets.get(index(epoch - i));
+            if (previous != null && previous.epoch == epoch - i && previous.contains(fingerprint)) {
+                return true;
+            }
+        }
+        return !current(epoch).add(fingerprint);
+    }
+
+    private Bucket current(final long epoch) {
+        int index = index(epoch);
+        Bucket bucket = buckets.get(index);
+        while (bucket == null || bucket.epoch != epoch) {
+            if (bucket != null && bucket.epoch > epoch) {
+                // The clock has been read before a concurrent rotation, the key is recorded in the newer bucket
+                return bucket;
+            }
+            Bucket rotated = new Bucket(epoch, capacity);
+            if (buckets.compareAndSet(index, bucket, rotated)) {
+                return rotated;
+            }
+            bucket = buckets.get(index);
+        }
+        return bucket;
+    }
+
+    private static int index(final long epoch) {
+        return (int) Math.floorMod(epoch, (long) BUCKETS + 1);
+    }
+
+    private static class Bucket {
+
+        private final long epoch;
+        private final AtomicLongArray fingerprints;
+        private final int mask;
+
+        private Bucket(final long epoch, final int capacity) {
+            this.epoch = epoch;
+            this.fingerprints = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+        }
+
+        private boolean contains(final long fingerprint) {
+            int slot = Fingerprints.slot(fingerprint) & mask;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                long current = fingerprints.get(slot);
+                if (current == fingerprint) {
+                    return true;
+                }
+                if (current == 0) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        /**
+         * @return <code>false</code> if the fingerprint was already in the bucket, <code>true</code> otherwise
+         */
+        private boolean add(final long fingerprint) {
+            int slot = Fingerprints.slot(fingerprint) & mask;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                long current = fingerprints.get(slot);
+                if (current == fingerprint) {
+                    return false;
+                }
+                if (current == 0) {
+                    if (fingerprints.compareAndSet(slot, 0, fingerprint)) {
+                        return true;
+                    }
+                    // Lost the race for this slot, check again what has been stored in it
+                    continue;
+                }
+                slot = (slot + 1) & mask;
+            }
+            // The bucket is saturated, the key is not recorded
+            return true;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.configuration.ConditionsOperator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Combination of several conditions with short-circuit evaluation, whose evaluation order adapts to the observed behavior of the conditions.
+ * <p>
+ * For each condition, the filter tracks how often it decides the result on its own (i.e. rejects the message with {@link ConditionsOperator#AND},
+ * accepts it with {@link ConditionsOperator#OR}) and, on a sample of the evaluations, how long it takes. Every {@value #REORDER_INTERVAL}
+ * evaluations, conditions are reordered by increasing cost per decision so that cheap and selective conditions run first.
+ * As conditions are expected to be free of side effects, the order only changes the cost of the evaluation, not its result. The only visible
+ * difference is for a condition failing to evaluate, which may be skipped once another condition has decided the result.
+ *
+ * @author GraviteeSource Team
+ */
+public class AdaptiveFilter implements MessageFilter {
+
+    static final int REORDER_INTERVAL = 1024;
+    private static final int TIMING_SAMPLE_MASK = 15;
+
+    private final List<String> expressions;
+    private final boolean decisiveResult;
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicBoolean reordering = new AtomicBoolean();
+    private volatile Condition[] order;
+
+    public AdaptiveFilter(final List<CompiledFilter> conditions, final ConditionsOperator operator) {
+        this.expressions = conditions.stream().map(CompiledFilter::getExpression).collect(Collectors.toList());
+        this.decisiveResult = operator == ConditionsOperator.OR;
+        this.order = conditions.stream().map(Condition::new).toArray(Condition[]::new);
+    }
+
+    /**
+     * @return the expressions of the conditions, in their configuration order
+     */
+    public List<String> getExpressions() {
+        return expressions;
+    }
+
+    @Override
+    public boolean evaluate(final MessageExecutionContext ctx, final Message message) {
+        long evaluation = evaluations.incrementAndGet();
+        boolean timed = (evaluation & TIMING_SAMPLE_MASK) == 0;
+        boolean result = !decisiveResult;
+        for (Condition condition : order) {
+            if (condition.evaluate(ctx, message, timed) == decisiveResult) {
+                result = decisiveResult;
+                break;
+            }
+        }
+        if (evaluation % REORDER_INTERVAL == 0) {
+            reorder();
+        }
+        return result;
+    }
+
+    /**
+     * @return the conditions in their current evaluation order
+     */
+    List<CompiledFilter> order() {
+        return Arrays.stream(order).map(condition -> condition.filter).collect(Collectors.toList());
+    }
+
+    private void reorder() {
+        if (!reordering.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Condition[] reordered = order.clone();
+            // Rank snapshots are taken once so that concurrent updates do not break the comparator contract
+            double[] ranks = new double[reordered.length];
+            Integer[] indexes = new Integer[reordered.length];
+            for (int i = 0; i < reordered.length; i++) {
+                ranks[i] = reordered[i].rank();
+                indexes[i] = i;
+            }
+            Arrays.sort(indexes, Comparator.comparingDouble(i -> ranks[i]));
+            Condition[] sorted = new Condition[reordered.length];
+            for (int i = 0; i < indexes.length; i++) {
+                sorted[i] = reordered[indexes[i]];
+            }
+            order = sorted;
+        } finally {
+            reordering.set(false);
+        }
+    }
+
+    private class Condition {
+
+        private final CompiledFilter filter;
+        private final LongAdder evaluated = new LongAdder();
+        private final LongAdder decided = new LongAdder();
+        private final LongAdder timed = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private Condition(final CompiledFilter filter) {
+            this.filter = filter;
+        }
+
+        private boolean evaluate(final MessageExecutionContext ctx, final Message message, final boolean timing) {
+            long start = timing ? System.nanoTime() : 0;
+            try {
+                boolean result = filter.evaluate(ctx, message);
+                if (result == decisiveResult) {
+                    decided.increment();
+                }
+                return result;
+            } finally {
+                evaluated.increment();
+                if (timing) {
+                    nanos.add(System.nanoTime() - start);
+                    timed.increment();
+                }
+            }
+        }
+
+        /**
+         * Expected cost of the condition per decisive evaluation: the lower, the sooner the condition should be evaluated.
+         * A condition which has not been timed yet is considered as cheap so that it gets a chance to be measured.
+         */
+        private double rank() {
+            long timedCount = timed.sum();
+            double cost = timedCount == 0 ? 1 : Math.max(1, (double) nanos.sum() / timedCount);
+            double decisiveProbability = (decided.sum() + 1d) / (evaluated.sum() + 2d);
+            return cost / decisiveProbability;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import io.gravitee.el.spel.SpelExpressionParser;
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.configuration.FilterEngine;
+import io.gravitee.policy.messagefiltering.json.ContentFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import io.gravitee.policy.messagefiltering.memo.MessageReads;
+import io.gravitee.policy.messagefiltering.memo.ResultCache;
+import io.gravitee.policy.messagefiltering.metrics.MemoizationMetrics;
+import io.gravitee.policy.messagefiltering.predicate.MessagePredicate;
+import io.gravitee.policy.messagefiltering.predicate.NativeFilterParser;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.common.LiteralExpression;
+
+/**
+ * Reusable form of a computed filter. It is built once per distinct computed filter and then only evaluated on the message hot path.
+ *
+ * @author GraviteeSource Team
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public final class CompiledFilter implements MessageFilter {
+
+    private static final SpelExpressionParser EXPRESSION_PARSER = new SpelExpressionParser();
+    private static final Pattern CONTENT_READ = Pattern.compile("#message\\s*\\.\\s*content(?![\\w$])");
+
+    private final String expression;
+
+    /**
+     * Result of the filter when it does not depend on the message at all (i.e. <code>true</code> or <code>false</code>), <code>null</code> otherwise.
+     */
+    private final Boolean constant;
+
+    /**
+     * Native predicate of the filter when the {@link FilterEngine#NATIVE} engine is selected or the content is binary, and the filter shape
+     * is supported, <code>null</code> otherwise.
+     */
+    private final MessagePredicate predicate;
+
+    /**
+     * Reason why the filter can never be evaluated (i.e. syntax error), <code>null</code> if the filter is valid or can not be checked.
+     */
+    private final String error;
+
+    /**
+     * Expression evaluated without the template engine when the filter only reads the id, headers, attributes and metadata of the message,
+     * <code>null</code> otherwise.
+     */
+    @Getter(AccessLevel.NONE)
+    private final MessageExpression messageExpression;
+
+    /**
+     * Parts of the message read by the filter when its results are memoized, <code>null</code> otherwise.
+     */
+    private final MessageReads reads;
+
+    @Getter(AccessLevel.NONE)
+    private final ResultCache results;
+
+    /**
+     * Compiled filter this one is derived from, which stays referenced so that it is kept in the {@link SharedCompiledFilters} while this
+     * one is in use, <code>null</code> otherwise.
+     */
+    @Getter(AccessLevel.NONE)
+    private final CompiledFilter source;
+
+    public static CompiledFilter compile(final String expression) {
+        return compile(expression, FilterEngine.EL);
+    }
+
+    public static CompiledFilter compile(final String expression, final FilterEngine engine) {
+        return compile(expression, engine, null);
+    }
+
+    /**
+     * Compile the given filter.
+     *
+     * @param expression the computed filter
+     * @param engine the engine used to evaluate the filter
+     * @param contentExtractors the factory of the extractors of the content paths referenced by the filter when the content is binary,
+     * <code>null</code> when the content is JSON
+     * @return the compiled filter
+     */
+    public static CompiledFilter compile(
+        final String expression,
+        final FilterEngine engine,
+        final Function<List<JsonFieldPath>, ContentFieldExtractor> contentExtractors
+    ) {
+        Boolean constant = constantOf(expression);
+        if (constant != null) {
+            return new CompiledFilter(expression, constant, null, null, null, null, null, null);
+        }
+        MessagePredicate predicate;
+        try {
+            if (contentExtractors != null) {
+                // The expression language can not read a binary content, so the native engine is used whatever the selected engine
+                predicate = NativeFilterParser.parse(expression, contentExtractors);
+            } else {
+                predicate = engine == FilterEngine.NATIVE ? NativeFilterParser.parse(expression) : null;
+            }
+        } catch (IllegalArgumentException e) {
+            return new CompiledFilter(expression, null, null, e.getMessage(), null, null, null, null);
+        }
+        if (predicate != null) {
+            return new CompiledFilter(expression, null, predicate, null, null, null, null, null);
+        }
+        if (contentExtractors != null && expression != null && CONTENT_READ.matcher(expression).find()) {
+            String error = "Filter [" + expression + "] reads the binary content but can not be evaluated natively";
+            return new CompiledFilter(expression, null, null, error, null, null, null, null);
+        }
+        String error = validate(expression);
+        MessageExpression messageExpression = error == null && expression != null ? MessageExpression.of(expression, EXPRESSION_PARSER) : null;
+        return new CompiledFilter(expression, null, null, error, messageExpression, null, null, null);
+    }
+
+    /**
+     * Memoize the results of the filter, keyed by a hash of the parts of the message it reads.
+     *
+     * @param maxEntries the maximum number of results kept
+     * @param metrics the metrics to report the cache usage to
+     * @return the memoizing filter, or this filter if its results can not be memoized
+     */
+    public CompiledFilter memoized(final int maxEntries, final MemoizationMetrics metrics) {
+        if (constant != null || !isValid() || results != null) {
+            return this;
+        }
+        MessageReads messageReads = MessageReads.of(expression);
+        if (messageReads == null) {
+            return this;
+        }
+        return new CompiledFilter(
+            expression,
+            null,
+            predicate,
+            null,
+            messageExpression,
+            messageReads,
+            new ResultCache(maxEntries, metrics),
+            this
+        );
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    @Override
+    public boolean evaluate(final MessageExecutionContext ctx, final Message message) {
+        if (constant != null) {
+            return constant;
+        }
+        if (results != null) {
+            long hash = reads.hash(message, results.seed());
+            if (hash != 0) {
+                Boolean result = results.get(hash);
+                if (result == null) {
+                    result = evaluateMessage(ctx, message);
+                    results.put(hash, result);
+                }
+                return result;
+            }
+        }
+        return evaluateMessage(ctx, message);
+    }
+
+    private boolean evaluateMessage(final MessageExecutionContext ctx, final Message message) {
+        if (predicate != null) {
+            return predicate.test(message);
+        }
+        if (messageExpression != null) {
+            return messageExpression.evaluate(ctx, message);
+        }
+        return ctx.getTemplateEngine(message).getValue(expression, boolean.class);
+    }
+
+    private static String validate(final String expression) {
+        if (expression == null) {
+            return null;
+        }
+        try {
+            Expression parsed = EXPRESSION_PARSER.parseExpression(expression);
+            if (parsed instanceof LiteralExpression) {
+                // Plain text which is not a boolean constant, its conversion to a boolean always fails
+                return "Filter [" + expression + "] is not a boolean";
+            }
+            return null;
+        } catch (ParseException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static Boolean constantOf(final String expression) {
+        if (expression == null) {
+            return null;
+        }
+        // A filter without any template is plain text converted to a boolean the same way the expression language does
+        switch (expression.trim().toLowerCase()) {
+            case "true":
+            case "on":
+            case "yes":
+            case "1":
+                return Boolean.TRUE;
+            case "false":
+            case "off":
+            case "no":
+            case "0":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+}
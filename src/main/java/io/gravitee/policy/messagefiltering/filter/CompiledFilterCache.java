@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of {@link CompiledFilter} keyed by the computed filter.
+ * Dynamic filters may differ from one connection to another, so the cache is bounded to avoid keeping every variant forever.
+ *
+ * @author GraviteeSource Team
+ */
+public class CompiledFilterCache {
+
+    public static final int DEFAULT_MAX_SIZE = 100;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Function<String, CompiledFilter> compiler;
+    private final Map<String, CompiledFilter> filters;
+
+    public CompiledFilterCache() {
+        this(CompiledFilter::compile);
+    }
+
+    public CompiledFilterCache(final Function<String, CompiledFilter> compiler) {
+        this(compiler, DEFAULT_MAX_SIZE);
+    }
+
+    public CompiledFilterCache(final Function<String, CompiledFilter> compiler, final int maxSize) {
+        this.compiler = compiler;
+        this.filters =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, CompiledFilter> eldest) {
+                    if (size() > maxSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+    }
+
+    /**
+     * Get the compiled form of the given computed filter, compiling it if it is not already cached.
+     *
+     * @param computedFilter the computed filter
+     * @return the compiled filter
+     */
+    public CompiledFilter get(final String computedFilter) {
+        synchronized (filters) {
+            CompiledFilter compiledFilter = filters.get(computedFilter);
+            if (compiledFilter != null) {
+                hits.increment();
+                return compiledFilter;
+            }
+            misses.increment();
+            compiledFilter = compiler.apply(computedFilter);
+            filters.put(computedFilter, compiledFilter);
+            return compiledFilter;
+        }
+    }
+
+    public int size() {
+        synchronized (filters) {
+            return filters.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+}
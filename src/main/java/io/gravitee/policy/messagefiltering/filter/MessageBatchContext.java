@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import io.gravitee.el.TemplateEngine;
+import io.gravitee.el.spel.context.SecuredEvaluationContext;
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.el.EvaluableMessage;
+import io.gravitee.gateway.reactive.api.message.Message;
+import lombok.experimental.Delegate;
+import org.springframework.expression.EvaluationContext;
+
+/**
+ * Execution context of a micro-batch of messages, evaluated one after another on the same thread.
+ * <p>
+ * The evaluation contexts of the filters are set up once for the whole batch rather than once per message: the template engine of the first
+ * message is reused for the following ones by binding them to its <code>#message</code> variable, and so is the bare evaluation context of the
+ * {@link MessageExpression}. Everything else is delegated to the execution context of the connection.
+ *
+ * @author GraviteeSource Team
+ */
+public final class MessageBatchContext implements MessageExecutionContext {
+
+    @Delegate(types = MessageExecutionContext.class, excludes = MessageTemplateEngine.class)
+    private final MessageExecutionContext ctx;
+
+    private TemplateEngine templateEngine;
+    private EvaluationContext evaluationContext;
+
+    public MessageBatchContext(final MessageExecutionContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public TemplateEngine getTemplateEngine(final Message message) {
+        if (templateEngine == null) {
+            templateEngine = ctx.getTemplateEngine(message);
+        } else {
+            templateEngine.getTemplateContext().setVariable(TEMPLATE_ATTRIBUTE_MESSAGE, new EvaluableMessage(message));
+        }
+        return templateEngine;
+    }
+
+    EvaluationContext evaluationContext() {
+        if (evaluationContext == null) {
+            evaluationContext = new SecuredEvaluationContext();
+        }
+        return evaluationContext;
+    }
+
+    private interface MessageTemplateEngine {
+        TemplateEngine getTemplateEngine(Message message);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import io.gravitee.el.spel.SpelExpressionParser;
+import io.gravitee.el.spel.context.SecuredEvaluationContext;
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.el.EvaluableMessage;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.memo.MessageReads;
+import java.util.regex.Pattern;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.common.LiteralExpression;
+
+/**
+ * Expression language filter only reading the id, headers, attributes and metadata of the message.
+ * <p>
+ * Such a filter does not need the template engine of the message, which exposes the whole execution context to the expression: it is evaluated
+ * against a bare evaluation context only holding the message, with the same security restrictions as the template engine. The content of the
+ * message is never read, so it is neither buffered nor decoded. Filters calling a function of the template engine, such as
+ * <code>#jsonPath</code>, are not supported as the bare evaluation context does not register them.
+ *
+ * @author GraviteeSource Team
+ */
+final class MessageExpression {
+
+    private static final Pattern FUNCTION_CALL = Pattern.compile("#jsonPath\\s*\\(");
+
+    private final Expression expression;
+
+    private MessageExpression(final Expression expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * @param expression the computed filter
+     * @param parser the parser of the expression language
+     * @return the message expression, or <code>null</code> if the filter reads anything else than the id, headers, attributes and metadata of
+     * the message or calls a function of the template engine
+     */
+    static MessageExpression of(final String expression, final SpelExpressionParser parser) {
+        MessageReads reads = MessageReads.of(expression);
+        if (reads == null || reads.isContent() || FUNCTION_CALL.matcher(expression).find()) {
+            return null;
+        }
+        try {
+            Expression parsed = parser.parseExpression(expression);
+            return parsed instanceof LiteralExpression ? null : new MessageExpression(parsed);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    boolean evaluate(final MessageExecutionContext ctx, final Message message) {
+        // Within a micro-batch, the evaluation context is set up once and only the message is bound for each evaluation
+        EvaluationContext context = ctx instanceof MessageBatchContext
+            ? ((MessageBatchContext) ctx).evaluationContext()
+            : new SecuredEvaluationContext();
+        context.setVariable(MessageExecutionContext.TEMPLATE_ATTRIBUTE_MESSAGE, new EvaluableMessage(message));
+        Boolean result = expression.getValue(context, Boolean.class);
+        if (result == null) {
+            throw new IllegalArgumentException("Filter [" + expression.getExpressionString() + "] evaluated to null");
+        }
+        return result;
+    }
+}
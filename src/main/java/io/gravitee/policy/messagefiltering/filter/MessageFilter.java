@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.message.Message;
+
+/**
+ * Filter ready to be evaluated on the message hot path.
+ *
+ * @author GraviteeSource Team
+ */
+public interface MessageFilter {
+    /**
+     * Evaluate the filter against the given message.
+     *
+     * @param ctx the current execution context
+     * @param message the message to evaluate
+     * @return <code>true</code> if the message matches the filter, <code>false</code> otherwise
+     */
+    boolean evaluate(MessageExecutionContext ctx, Message message);
+}
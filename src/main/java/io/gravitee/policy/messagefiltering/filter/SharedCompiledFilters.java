@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Node-wide registry of {@link CompiledFilter} shared by all the policy instances and connections computing the same filter, so that a
+ * filter is only parsed and analyzed once per node however many APIs and connections use it.
+ * <p>
+ * Entries are keyed by a compilation profile (the options changing how a filter is compiled, i.e. the engine) and the computed filter.
+ * A compiled filter is kept as long as a connection or the cache of a policy instance still references it: once the last one is gone, it is
+ * released by the garbage collector and its entry is purged on a later lookup.
+ * <p>
+ * The users of an entry are counted by reachability rather than by explicit acquire and release calls: the policy API notifies neither the
+ * undeployment of a policy instance nor the end of a connection filtering messages one by one, so an explicit release could be missed and the
+ * entry would then be kept forever. A deployed policy instance holds the filters it computed in its {@link CompiledFilterCache}, so they are
+ * never released while it is in use. An entry released before a policy instance gets it (i.e. while it is deploying) is only compiled again,
+ * with the same result.
+ *
+ * @author GraviteeSource Team
+ */
+public final class SharedCompiledFilters {
+
+    private static final ConcurrentMap<Key, Entry> FILTERS = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<CompiledFilter> RELEASED = new ReferenceQueue<>();
+
+    private SharedCompiledFilters() {}
+
+    /**
+     * Get the compiled form of the given computed filter, compiling it if it is not used by any connection of the node.
+     *
+     * @param profile the compilation profile, filters compiled with different profiles are not shared
+     * @param computedFilter the computed filter
+     * @param compiler the compiler of the filter for the given profile
+     * @return the shared compiled filter
+     */
+    public static CompiledFilter get(final String profile, final String computedFilter, final Function<String, CompiledFilter> compiler) {
+        purge();
+        Key key = new Key(profile, computedFilter);
+        Entry entry = FILTERS.get(key);
+        CompiledFilter compiledFilter = entry != null ? entry.get() : null;
+        if (compiledFilter != null) {
+            return compiledFilter;
+        }
+        // Compile outside of the map lock, a concurrent compilation of the same filter keeps the first registered one
+        CompiledFilter compiled = compiler.apply(computedFilter);
+        CompiledFilter[] shared = new CompiledFilter[1];
+        FILTERS.compute(
+            key,
+            (k, current) -> {
+                shared[0] = current != null ? current.get() : null;
+                if (shared[0] != null) {
+                    return current;
+                }
+                shared[0] = compiled;
+                return new Entry(k, compiled);
+            }
+        );
+        return shared[0];
+    }
+
+    /**
+     * @return the number of compiled filters currently shared on the node
+     */
+    public static int size() {
+        purge();
+        return FILTERS.size();
+    }
+
+    private static void purge() {
+        Entry released;
+        while ((released = (Entry) RELEASED.poll()) != null) {
+            FILTERS.remove(released.key, released);
+        }
+    }
+
+    private static final class Entry extends WeakReference<CompiledFilter> {
+
+        private final Key key;
+
+        private Entry(final Key key, final CompiledFilter compiledFilter) {
+            super(compiledFilter, RELEASED);
+            this.key = key;
+        }
+    }
+
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    private static final class Key {
+
+        private final String profile;
+        private final String filter;
+    }
+}
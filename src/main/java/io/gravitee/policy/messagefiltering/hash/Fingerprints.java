@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 64-bit fingerprints of keys, used to store sets of keys in primitive hash tables.
+ * Two different keys share the same fingerprint with a probability of about <code>1 / 2^64</code>.
+ *
+ * @author GraviteeSource Team
+ */
+public final class Fingerprints {
+
+    private Fingerprints() {}
+
+    /**
+     * 64-bit FNV-1a hash of the characters of the key, followed by the MurmurHash3 finalizer to spread the bits.
+     *
+     * @param key the key
+     * @return the fingerprint of the key, never <code>0</code> so that it can mark empty slots
+     */
+    public static long of(final CharSequence key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Combine a 64-bit value into a running hash, processing 8 bytes at once with the MurmurHash3 mixing steps.
+     * Start from a seed, combine each value, and complete the hash with {@link #finish(long)}.
+     *
+     * @param hash the running hash
+     * @param value the value to combine
+     * @return the new running hash
+     */
+    public static long mix(final long hash, final long value) {
+        long k = value * 0x87c37b91114253d5L;
+        k = Long.rotateLeft(k, 31);
+        k *= 0x4cf5ad432745937fL;
+        long h = hash ^ k;
+        return Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+    }
+
+    /**
+     * Combine the characters of a value, and its length, into a running hash.
+     */
+    public static long mix(final long hash, final CharSequence value) {
+        long h = hash;
+        int i = 0;
+        for (; i + 4 <= value.length(); i += 4) {
+            h =
+                mix(
+                    h,
+                    (long) value.charAt(i) |
+                    (long) value.charAt(i + 1) << 16 |
+                    (long) value.charAt(i + 2) << 32 |
+                    (long) value.charAt(i + 3) << 48
+                );
+        }
+        for (; i < value.length(); i++) {
+            h = mix(h, value.charAt(i));
+        }
+        return mix(h, value.length());
+    }
+
+    /**
+     * Combine the remaining bytes of a buffer, and their number, into a running hash without moving the position of the buffer.
+     * Bytes are consumed by blocks of 32 over four independent lanes, so that the mixing steps of the lanes can run in parallel on the CPU.
+     */
+    public static long mix(final long hash, final ByteBuffer bytes) {
+        ByteBuffer buffer = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int start = buffer.position();
+        int length = buffer.remaining();
+        long h = hash;
+        int i = 0;
+        if (length >= 4 * Long.BYTES) {
+            long h1 = hash;
+            long h2 = hash + 0x9e3779b97f4a7c15L;
+            long h3 = hash - 0x61c8864680b583ebL;
+            long h4 = ~hash;
+            for (; i + 4 * Long.BYTES <= length; i += 4 * Long.BYTES) {
+                h1 = mix(h1, buffer.getLong(start + i));
+                h2 = mix(h2, buffer.getLong(start + i + Long.BYTES));
+                h3 = mix(h3, buffer.getLong(start + i + 2 * Long.BYTES));
+                h4 = mix(h4, buffer.getLong(start + i + 3 * Long.BYTES));
+            }
+            h = mix(mix(mix(mix(h, h1), h2), h3), h4);
+        }
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            h = mix(h, buffer.getLong(start + i));
+        }
+        for (; i < length; i++) {
+            h = mix(h, buffer.get(start + i));
+        }
+        return mix(h, length);
+    }
+
+    /**
+     * Complete a running hash with the MurmurHash3 finalizer.
+     *
+     * @return the hash, never <code>0</code> so that it can mark empty slots
+     */
+    public static long finish(final long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * @return the slot of the fingerprint in a table, to be masked with the table capacity
+     */
+    public static int slot(final long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.json;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import java.io.IOException;
+
+/**
+ * Extraction of the values of a set of {@link JsonFieldPath} from the content of a message, in a single pass over its bytes.
+ * Values follow the conventions of {@link JsonFieldExtractor}: {@link JsonFieldExtractor#NOT_FOUND} for a path which cannot be resolved and
+ * {@link JsonFieldExtractor#CONTAINER} for a path resolved to a structure rather than to a scalar value.
+ *
+ * @author GraviteeSource Team
+ */
+public interface ContentFieldExtractor {
+    /**
+     * Extract the values of the paths from the given content.
+     *
+     * @param content the content
+     * @return the values indexed as the paths given at construction time
+     * @throws IOException if the content can not be read
+     */
+    Object[] extract(Buffer content) throws IOException;
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extract the values of a set of {@link JsonFieldPath} from a JSON payload in a single streaming pass over its bytes.
+ * <p>
+ * Parts of the payload which are not on the way to a requested path are skipped without being materialized, so the memory used does not depend
+ * on the payload size. The whole payload is read, so that a duplicated property replaces the previous one and a malformed payload is detected,
+ * as with Jayway JsonPath.
+ * Results follow the ones of the <code>#jsonPath</code> expression language function: a missing leaf property is <code>null</code> whereas a
+ * missing intermediate property or array element is {@link #NOT_FOUND}. Objects and arrays are reported as {@link #CONTAINER} as filters only
+ * compare scalar values.
+ *
+ * @author GraviteeSource Team
+ */
+public class JsonFieldExtractor implements ContentFieldExtractor {
+
+    /**
+     * Value of a path which cannot be resolved against the payload.
+     */
+    public static final Object NOT_FOUND = new Marker("NOT_FOUND");
+
+    /**
+     * Value of a path resolved to a JSON object or array.
+     */
+    public static final Object CONTAINER = new Marker("CONTAINER");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Node root = new Node();
+    private final int size;
+
+    public JsonFieldExtractor(final List<JsonFieldPath> paths) {
+        this.size = paths.size();
+        for (int i = 0; i < paths.size(); i++) {
+            Node node = root;
+            for (Object segment : paths.get(i).getSegments()) {
+                node = node.child(segment);
+            }
+            node.target = i;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Extract the values of the paths from the given content.
+     *
+     * @param content the JSON content
+     * @return the values indexed as the paths given at construction time
+     * @throws IOException if the content is not a valid JSON
+     */
+    @Override
+    public Object[] extract(final Buffer content) throws IOException {
+        Object[] values = new Object[size];
+        Arrays.fill(values, NOT_FOUND);
+        if (content == null || content.length() == 0) {
+            return values;
+        }
+        try (JsonParser parser = createParser(content)) {
+            if (parser.nextToken() != null) {
+                new Extraction(parser, values).value(root);
+            }
+        }
+        return values;
+    }
+
+    private static JsonParser createParser(final Buffer content) throws IOException {
+        ByteBuf byteBuf = content.getNativeBuffer();
+        if (byteBuf == null) {
+            return JSON_FACTORY.createParser(content.getBytes());
+        }
+        if (byteBuf.hasArray()) {
+            return JSON_FACTORY.createParser(byteBuf.array(), byteBuf.arrayOffset() + byteBuf.readerIndex(), byteBuf.readableBytes());
+        }
+        return JSON_FACTORY.createParser((InputStream) new ByteBufInputStream(byteBuf.duplicate()));
+    }
+
+    private static class Extraction {
+
+        private final JsonParser parser;
+        private final Object[] values;
+
+        private Extraction(final JsonParser parser, final Object[] values) {
+            this.parser = parser;
+            this.values = values;
+        }
+
+        /**
+         * Read the value the parser is positioned on.
+         */
+        private void value(final Node node) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.START_OBJECT) {
+                resolve(node, CONTAINER);
+                if (node.properties == null) {
+                    parser.skipChildren();
+                } else {
+                    object(node);
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                resolve(node, CONTAINER);
+                if (node.indexes == null) {
+                    parser.skipChildren();
+                } else {
+                    array(node);
+                }
+            } else {
+                resolve(node, scalar(token));
+            }
+        }
+
+        private void object(final Node node) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.properties.get(parser.currentName());
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    // As with Jayway JsonPath, a duplicated property replaces the previous one, including what was resolved below it
+                    clear(child);
+                    value(child);
+                }
+            }
+            // As with the expression language, a missing leaf property is null
+            for (Node child : node.properties.values()) {
+                if (child.target >= 0 && values[child.target] == NOT_FOUND) {
+                    values[child.target] = null;
+                }
+            }
+        }
+
+        private void array(final Node node) throws IOException {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                Node child = node.indexes.get(index++);
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    value(child);
+                }
+            }
+        }
+
+        private Object scalar(final JsonToken token) throws IOException {
+            switch (token) {
+                case VALUE_STRING:
+                    return parser.getText();
+                case VALUE_NUMBER_INT:
+                    return parser.getNumberValue();
+                case VALUE_NUMBER_FLOAT:
+                    return parser.getDoubleValue();
+                case VALUE_TRUE:
+                    return Boolean.TRUE;
+                case VALUE_FALSE:
+                    return Boolean.FALSE;
+                default:
+                    return null;
+            }
+        }
+
+        private void resolve(final Node node, final Object value) {
+            if (node.target >= 0) {
+                values[node.target] = value;
+            }
+        }
+
+        private void clear(final Node node) {
+            if (node.target >= 0) {
+                values[node.target] = NOT_FOUND;
+            }
+            if (node.properties != null) {
+                node.properties.values().forEach(this::clear);
+            }
+            if (node.indexes != null) {
+                node.indexes.values().forEach(this::clear);
+            }
+        }
+    }
+
+    private static class Node {
+
+        private int target = -1;
+        private Map<String, Node> properties;
+        private Map<Integer, Node> indexes;
+
+        private Node child(final Object segment) {
+            if (segment instanceof Integer) {
+                if (indexes == null) {
+                    indexes = new HashMap<>();
+                }
+                return indexes.computeIfAbsent((Integer) segment, i -> new Node());
+            }
+            if (properties == null) {
+                properties = new HashMap<>();
+            }
+            return properties.computeIfAbsent((String) segment, p -> new Node());
+        }
+    }
+
+    private static class Marker {
+
+        private final String name;
+
+        private Marker(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Definite JSON path, i.e. a path only made of property names and array indexes such as <code>$.order.items[0].type</code> or
+ * <code>$['order']['type']</code>. Each segment is either a {@link String} (property name) or an {@link Integer} (array index).
+ *
+ * @author GraviteeSource Team
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@EqualsAndHashCode(of = "segments")
+public final class JsonFieldPath {
+
+    private final String path;
+    private final List<Object> segments;
+
+    /**
+     * Parse the given JSON path.
+     *
+     * @param path the JSON path
+     * @return the parsed path, or <code>null</code> if the path is not a definite path (wildcards, deep scans, filters, slices...)
+     */
+    public static JsonFieldPath parse(final String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '$') {
+            return null;
+        }
+        List<Object> segments = new ArrayList<>();
+        int position = 1;
+        while (position < path.length()) {
+            char current = path.charAt(position);
+            if (current == '.') {
+                int start = ++position;
+                while (position < path.length() && isPropertyChar(path.charAt(position))) {
+                    position++;
+                }
+                if (start == position) {
+                    return null;
+                }
+                segments.add(path.substring(start, position));
+            } else if (current == '[') {
+                int end = path.indexOf(']', position);
+                if (end < 0) {
+                    return null;
+                }
+                String content = path.substring(position + 1, end).trim();
+                if (content.length() >= 2 && (content.charAt(0) == '\'' || content.charAt(0) == '"')) {
+                    if (content.charAt(content.length() - 1) != content.charAt(0)) {
+                        return null;
+                    }
+                    String property = content.substring(1, content.length() - 1);
+                    if (property.indexOf('\'') >= 0 || property.indexOf('"') >= 0 || property.indexOf(',') >= 0) {
+                        return null;
+                    }
+                    segments.add(property);
+                } else {
+                    try {
+                        int index = Integer.parseInt(content);
+                        if (index < 0) {
+                            return null;
+                        }
+                        segments.add(index);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                position = end + 1;
+            } else {
+                return null;
+            }
+        }
+        return new JsonFieldPath(path, Collections.unmodifiableList(segments));
+    }
+
+    private static boolean isPropertyChar(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '$';
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.key;
+
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.configuration.MessageKeySource;
+
+/**
+ * Resolve the key of a message from its id, one of its headers or an expression.
+ *
+ * @author GraviteeSource Team
+ */
+public class MessageKeyResolver {
+
+    private final MessageKeySource source;
+    private final String key;
+
+    public MessageKeyResolver(final MessageKeySource source, final String key) {
+        this.source = source == null ? MessageKeySource.ID : source;
+        this.key = key;
+    }
+
+    /**
+     * @return the key of the message, <code>null</code> if the message has none
+     */
+    public String resolve(final MessageExecutionContext ctx, final Message message) {
+        switch (source) {
+            case HEADER:
+                return message.headers() == null ? null : message.headers().get(key);
+            case EXPRESSION:
+                return ctx.getTemplateEngine(message).getValue(key, String.class);
+            default:
+                return message.id();
+        }
+    }
+}
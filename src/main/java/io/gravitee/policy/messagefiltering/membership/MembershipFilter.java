@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.membership;
+
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.configuration.MembershipConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.MembershipKeySource;
+import io.gravitee.policy.messagefiltering.configuration.MembershipMode;
+import io.gravitee.policy.messagefiltering.filter.MessageFilter;
+import io.gravitee.policy.messagefiltering.json.JsonFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filter messages according to the membership of one of their keys to a {@link SharedMembershipSet}.
+ * A message without key is not a member of the set.
+ *
+ * @author GraviteeSource Team
+ */
+public class MembershipFilter implements MessageFilter {
+
+    private final MembershipKeySource source;
+    private final String key;
+    private final boolean allow;
+    private final SharedMembershipSet set;
+    private final JsonFieldExtractor extractor;
+
+    public MembershipFilter(final MembershipConfiguration configuration) {
+        this(configuration, SharedMembershipSet.of(requireFile(configuration), configuration.isBloomFilter()));
+    }
+
+    private static String requireFile(final MembershipConfiguration configuration) {
+        if (configuration.getFile() == null) {
+            throw new IllegalArgumentException("Membership requires the file listing the members of the set");
+        }
+        return configuration.getFile();
+    }
+
+    MembershipFilter(final MembershipConfiguration configuration, final SharedMembershipSet set) {
+        if (configuration.getKey() == null) {
+            throw new IllegalArgumentException("Membership requires the key of the messages to test");
+        }
+        this.source = configuration.getSource();
+        this.key = configuration.getKey();
+        this.allow = configuration.getMode() != MembershipMode.DENY;
+        this.set = set;
+        if (source == MembershipKeySource.JSON_PATH) {
+            JsonFieldPath path = JsonFieldPath.parse(key);
+            if (path == null) {
+                throw new IllegalArgumentException("Membership key must be a definite JSON path: " + key);
+            }
+            this.extractor = new JsonFieldExtractor(List.of(path));
+        } else {
+            this.extractor = null;
+        }
+    }
+
+    @Override
+    public boolean evaluate(final MessageExecutionContext ctx, final Message message) {
+        return set.contains(keyOf(message)) == allow;
+    }
+
+    private CharSequence keyOf(final Message message) {
+        switch (source) {
+            case HEADER:
+                return message.headers() == null ? null : message.headers().get(key);
+            case ATTRIBUTE:
+                return asCharSequence(message.attribute(key));
+            case METADATA:
+                Map<String, Object> metadata = message.metadata();
+                return metadata == null ? null : asCharSequence(metadata.get(key));
+            default:
+                try {
+                    Object value = extractor.extract(message.content())[0];
+                    return value == JsonFieldExtractor.NOT_FOUND || value == JsonFieldExtractor.CONTAINER ? null : asCharSequence(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+        }
+    }
+
+    private static CharSequence asCharSequence(final Object value) {
+        if (value == null || value instanceof CharSequence) {
+            return (CharSequence) value;
+        }
+        return value.toString();
+    }
+}
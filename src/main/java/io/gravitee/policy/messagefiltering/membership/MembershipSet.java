@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.membership;
+
+import io.gravitee.policy.messagefiltering.hash.Fingerprints;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Immutable set of keys held off-heap in an open addressing hash table of 64-bit fingerprints.
+ * <p>
+ * Only the fingerprints of the keys are stored, so the memory used is 16 bytes per key whatever their length, and a lookup hashes the candidate
+ * key in place and probes the table without any allocation. Two different keys share the same fingerprint with a probability of about
+ * <code>size / 2^64</code>, which is negligible for the sizes of the sets used for filtering.
+ * An optional Bloom filter, kept on heap with about 10 bits per key, lets most of the lookups of keys which are not in the set skip the table.
+ *
+ * @author GraviteeSource Team
+ */
+public final class MembershipSet {
+
+    public static final MembershipSet EMPTY = of(new long[0], 0, false);
+
+    private static final long EMPTY_SLOT = 0;
+    private static final int BLOOM_BITS_PER_KEY = 10;
+    private static final int BLOOM_HASHES = 3;
+
+    private final LongBuffer table;
+    private final int mask;
+    private final int size;
+    private final long[] bloom;
+    private final int bloomMask;
+
+    private MembershipSet(final LongBuffer table, final int size, final long[] bloom) {
+        this.table = table;
+        this.mask = table.capacity() - 1;
+        this.size = size;
+        this.bloom = bloom;
+        this.bloomMask = bloom == null ? 0 : bloom.length * Long.SIZE - 1;
+    }
+
+    /**
+     * Load the set from a file listing one key per line.
+     * Keys are trimmed, and blank lines and lines starting with <code>#</code> are ignored.
+     */
+    public static MembershipSet load(final Path file, final boolean bloomFilter) throws IOException {
+        long[] fingerprints = new long[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String key = line.trim();
+                if (key.isEmpty() || key.charAt(0) == '#') {
+                    continue;
+                }
+                if (count == fingerprints.length) {
+                    fingerprints = Arrays.copyOf(fingerprints, count * 2);
+                }
+                fingerprints[count++] = Fingerprints.of(key);
+            }
+        }
+        return of(fingerprints, count, bloomFilter);
+    }
+
+    static MembershipSet of(final long[] fingerprints, final int count, final boolean bloomFilter) {
+        // Keep the load factor under 0.5 so that probe sequences stay short
+        int capacity = nextPowerOfTwo(Math.max(1, count) * 2);
+        LongBuffer table = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+        long[] bloom = bloomFilter ? new long[nextPowerOfTwo(Math.max(Long.SIZE, count * BLOOM_BITS_PER_KEY)) / Long.SIZE] : null;
+        int mask = capacity - 1;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            long fingerprint = fingerprints[i];
+            int slot = Fingerprints.slot(fingerprint) & mask;
+            while (table.get(slot) != EMPTY_SLOT && table.get(slot) != fingerprint) {
+                slot = (slot + 1) & mask;
+            }
+            if (table.get(slot) == EMPTY_SLOT) {
+                table.put(slot, fingerprint);
+                size++;
+                if (bloom != null) {
+                    int bloomMask = bloom.length * Long.SIZE - 1;
+                    for (int h = 0; h < BLOOM_HASHES; h++) {
+                        int bit = bloomBit(fingerprint, h) & bloomMask;
+                        bloom[bit >>> 6] |= 1L << bit;
+                    }
+                }
+            }
+        }
+        return new MembershipSet(table, size, bloom);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(final CharSequence key) {
+        if (key == null || size == 0) {
+            return false;
+        }
+        long fingerprint = Fingerprints.of(key);
+        if (bloom != null) {
+            for (int h = 0; h < BLOOM_HASHES; h++) {
+                int bit = bloomBit(fingerprint, h) & bloomMask;
+                if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+        }
+        int slot = Fingerprints.slot(fingerprint) & mask;
+        long current;
+        while ((current = table.get(slot)) != EMPTY_SLOT) {
+            if (current == fingerprint) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private static int nextPowerOfTwo(final int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static int bloomBit(final long fingerprint, final int h) {
+        return (int) fingerprint + h * (int) (fingerprint >>> 32);
+    }
+}
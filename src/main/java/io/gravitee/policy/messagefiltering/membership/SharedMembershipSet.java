@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.membership;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link MembershipSet} loaded from a local file and shared by all the policy instances of the node referencing the same file.
+ * <p>
+ * The file is checked for changes at most every {@value #CHECK_INTERVAL_SECONDS} seconds, in the background, and a new set is swapped in
+ * atomically once fully loaded, so lookups never wait for a reload nor see a partially loaded set. When the file can not be read, the previous set
+ * is kept.
+ * <p>
+ * As for the shared compiled filters, a set is kept as long as a policy instance still references it: the policy API does not notify the
+ * undeployment of a policy, so once the last policy using the file is gone, the set (and its off-heap table) is released by the garbage
+ * collector and its entry is purged on a later lookup.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public final class SharedMembershipSet {
+
+    static final long CHECK_INTERVAL_SECONDS = 10;
+    private static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(CHECK_INTERVAL_SECONDS);
+    private static final ConcurrentMap<String, Entry> SETS = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<SharedMembershipSet> RELEASED = new ReferenceQueue<>();
+
+    private final Path file;
+    private final boolean bloomFilter;
+    private final AtomicLong nextCheck = new AtomicLong(System.nanoTime() + CHECK_INTERVAL_NANOS);
+    private volatile MembershipSet current = MembershipSet.EMPTY;
+    private long lastModified = Long.MIN_VALUE;
+    private long lastSize = -1;
+
+    private SharedMembershipSet(final Path file, final boolean bloomFilter) {
+        this.file = file;
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Get the set of the given file, loading it if it is not already used by another policy instance.
+     */
+    public static SharedMembershipSet of(final String file, final boolean bloomFilter) {
+        purge();
+        SharedMembershipSet[] shared = new SharedMembershipSet[1];
+        SETS.compute(
+            file + '|' + bloomFilter,
+            (key, current) -> {
+                shared[0] = current != null ? current.get() : null;
+                if (shared[0] != null) {
+                    return current;
+                }
+                shared[0] = new SharedMembershipSet(Paths.get(file), bloomFilter);
+                shared[0].reload();
+                return new Entry(key, shared[0]);
+            }
+        );
+        return shared[0];
+    }
+
+    private static void purge() {
+        Entry released;
+        while ((released = (Entry) RELEASED.poll()) != null) {
+            SETS.remove(released.key, released);
+        }
+    }
+
+    public boolean contains(final CharSequence key) {
+        long next = nextCheck.get();
+        long now = System.nanoTime();
+        if (now - next >= 0 && nextCheck.compareAndSet(next, now + CHECK_INTERVAL_NANOS)) {
+            Schedulers.io().scheduleDirect(this::reload);
+        }
+        return current.contains(key);
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    synchronized void reload() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (modified == lastModified && attributes.size() == lastSize) {
+                return;
+            }
+            MembershipSet loaded = MembershipSet.load(file, bloomFilter);
+            current = loaded;
+            lastModified = modified;
+            lastSize = attributes.size();
+            log.info("Membership set [{}] loaded with {} keys", file, loaded.size());
+        } catch (IOException e) {
+            log.warn("Unable to load membership set [{}], keeping the {} previously loaded keys", file, current.size(), e);
+        }
+    }
+
+    private static final class Entry extends WeakReference<SharedMembershipSet> {
+
+        private final String key;
+
+        private Entry(final String key, final SharedMembershipSet set) {
+            super(set, RELEASED);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.memo;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.hash.Fingerprints;
+import io.netty.buffer.ByteBuf;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Parts of a message a filter reads, i.e. its id, its content and some of its headers, attributes and metadata.
+ * <p>
+ * A filter only reading those parts gives the same result for two messages sharing the same values for them, so its result can be memoized
+ * with a hash of those values as key. Filters reading anything else (other variables, type references, bean references, headers not given as a
+ * literal...) may give different results for the same message and are not memoized.
+ *
+ * @author GraviteeSource Team
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public final class MessageReads {
+
+    private static final Pattern MESSAGE_PART = Pattern.compile(
+        "#message\\s*\\.\\s*(?:(id|content)(?![\\w$])|(headers|attributes|metadata)\\s*\\[\\s*(?:'((?:[^']|'')*)'|\"((?:[^\"]|\"\")*)\")\\s*])"
+    );
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'|\"(?:[^\"]|\"\")*\"");
+    private static final Pattern UNSUPPORTED = Pattern.compile("#(?!jsonPath\\s*\\()|\\bT\\s*\\(|\\bnew\\s|@");
+
+    /**
+     * Attribute and metadata values which are hashed through their string form.
+     */
+    private static final Set<Class<?>> SCALARS = Set.of(
+        String.class,
+        Boolean.class,
+        Character.class,
+        Integer.class,
+        Long.class,
+        Double.class
+    );
+
+    private final boolean id;
+    private final boolean content;
+    private final List<String> headers;
+    private final List<String> attributes;
+    private final List<String> metadata;
+
+    /**
+     * Find the parts of a message the given expression reads.
+     *
+     * @param expression the computed filter
+     * @return the parts of the message read by the filter, or <code>null</code> if the filter reads anything else than the message
+     */
+    public static MessageReads of(final String expression) {
+        if (expression == null) {
+            return null;
+        }
+        boolean id = false;
+        boolean content = false;
+        Set<String> headers = new LinkedHashSet<>();
+        Set<String> attributes = new LinkedHashSet<>();
+        Set<String> metadata = new LinkedHashSet<>();
+        Matcher matcher = MESSAGE_PART.matcher(expression);
+        StringBuilder remaining = new StringBuilder();
+        while (matcher.find()) {
+            if ("id".equals(matcher.group(1))) {
+                id = true;
+            } else if ("content".equals(matcher.group(1))) {
+                content = true;
+            } else {
+                String name = matcher.group(3) != null ? matcher.group(3).replace("''", "'") : matcher.group(4).replace("\"\"", "\"");
+                switch (matcher.group(2)) {
+                    case "headers":
+                        headers.add(name);
+                        break;
+                    case "attributes":
+                        attributes.add(name);
+                        break;
+                    default:
+                        metadata.add(name);
+                }
+            }
+            matcher.appendReplacement(remaining, " ");
+        }
+        matcher.appendTail(remaining);
+        // Anything left which is not a string literal may read something else than the message
+        if (UNSUPPORTED.matcher(STRING_LITERAL.matcher(remaining).replaceAll("''")).find()) {
+            return null;
+        }
+        return new MessageReads(id, content, List.copyOf(headers), List.copyOf(attributes), List.copyOf(metadata));
+    }
+
+    /**
+     * Hash the parts of the message the filter reads.
+     *
+     * @param message the message
+     * @param seed the seed of the hash
+     * @return the hash, or <code>0</code> if the message can not be hashed (i.e. an attribute is not a scalar value)
+     */
+    public long hash(final Message message, final long seed) {
+        long hash = seed;
+        if (id) {
+            hash = mix(hash, message.id());
+        }
+        if (content) {
+            hash = mix(hash, message.content());
+        }
+        for (String header : headers) {
+            List<String> values = message.headers() == null ? null : message.headers().getAll(header);
+            if (values == null) {
+                values = Collections.emptyList();
+            }
+            hash = Fingerprints.mix(hash, values.size());
+            for (String value : values) {
+                hash = mix(hash, value);
+            }
+        }
+        for (String attribute : attributes) {
+            Object value = message.attribute(attribute);
+            if (value != null && !SCALARS.contains(value.getClass())) {
+                return 0;
+            }
+            hash = mix(hash, value);
+        }
+        Map<String, Object> messageMetadata = message.metadata();
+        for (String key : metadata) {
+            Object value = messageMetadata == null ? null : messageMetadata.get(key);
+            if (value != null && !SCALARS.contains(value.getClass())) {
+                return 0;
+            }
+            hash = mix(hash, value);
+        }
+        return Fingerprints.finish(hash);
+    }
+
+    private static long mix(final long hash, final Object value) {
+        if (value == null) {
+            return Fingerprints.mix(hash, -1L);
+        }
+        // The type is part of the hash so that i.e. the number 1 and the string "1" do not share the same hash
+        return Fingerprints.mix(Fingerprints.mix(hash, value.getClass().getName()), value.toString());
+    }
+
+    private static long mix(final long hash, final Buffer content) {
+        if (content == null) {
+            return Fingerprints.mix(hash, -1L);
+        }
+        ByteBuf byteBuf = content.getNativeBuffer();
+        ByteBuffer bytes = byteBuf != null ? byteBuf.nioBuffer() : ByteBuffer.wrap(content.getBytes());
+        return Fingerprints.mix(hash, bytes);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.memo;
+
+import io.gravitee.policy.messagefiltering.metrics.MemoizationMetrics;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded LRU cache of the results of a filter, keyed by the hash of the parts of the message it reads.
+ * <p>
+ * Entries are spread over {@value #STRIPES} independently locked stripes, each one being a map in access order evicting its least recently used
+ * entry when full. Every entry has the same size (a hash and a boolean), so bounding the number of entries bounds the memory used by the cache.
+ * Hashes are seeded randomly per cache, so that colliding messages can not be crafted in advance to reuse the result of another message.
+ *
+ * @author GraviteeSource Team
+ */
+public class ResultCache {
+
+    private static final int STRIPES = 16;
+
+    private final long seed = ThreadLocalRandom.current().nextLong();
+    private final MemoizationMetrics metrics;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public ResultCache(final int maxEntries, final MemoizationMetrics metrics) {
+        this.metrics = metrics;
+        int entriesPerStripe = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(entriesPerStripe);
+        }
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * @param hash the hash of the message
+     * @return the result memoized for the hash, <code>null</code> if there is none
+     */
+    public Boolean get(final long hash) {
+        Stripe stripe = stripe(hash);
+        Boolean result;
+        synchronized (stripe) {
+            result = stripe.results.get(hash);
+        }
+        if (result != null) {
+            metrics.hit();
+        } else {
+            metrics.miss();
+        }
+        return result;
+    }
+
+    public void put(final long hash, final boolean result) {
+        Stripe stripe = stripe(hash);
+        synchronized (stripe) {
+            stripe.results.put(hash, result);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.results.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripe(final long hash) {
+        return stripes[(int) (hash >>> 60) & (STRIPES - 1)];
+    }
+
+    private static class Stripe {
+
+        private final LinkedHashMap<Long, Boolean> results;
+
+        private Stripe(final int maxEntries) {
+            this.results =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(final Map.Entry<Long, Boolean> eldest) {
+                        return size() > maxEntries;
+                    }
+                };
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Health of the filter of a policy instance. When the filter can never be evaluated (i.e. syntax error), messages are not evaluated anymore but
+ * all propagated or all filtered according to <code>filterMessageOnFilteringError</code>, which is reported here and logged at most once per
+ * {@value #LOG_INTERVAL_MINUTES} minute.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+@Getter
+public class FilterHealth {
+
+    private static final long LOG_INTERVAL_MINUTES = 1;
+    private static final long LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(LOG_INTERVAL_MINUTES);
+
+    public enum Status {
+        /**
+         * The filter is evaluated on each message.
+         */
+        HEALTHY,
+
+        /**
+         * The filter can not be evaluated and all the messages are propagated.
+         */
+        PASS_ALL,
+
+        /**
+         * The filter can not be evaluated and all the messages are filtered.
+         */
+        DROP_ALL,
+    }
+
+    private volatile Status status = Status.HEALTHY;
+    private volatile String invalidFilter;
+    private volatile String error;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final LongAdder decided = new LongAdder();
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicLong lastLog = new AtomicLong(System.nanoTime() - LOG_INTERVAL_NANOS);
+
+    public boolean isHealthy() {
+        return status == Status.HEALTHY;
+    }
+
+    /**
+     * @return the number of messages propagated or filtered without evaluation because the filter can not be evaluated
+     */
+    public long getDecidedMessages() {
+        return decided.sum();
+    }
+
+    public void healthy() {
+        if (status != Status.HEALTHY) {
+            status = Status.HEALTHY;
+            invalidFilter = null;
+            error = null;
+        }
+    }
+
+    public void invalid(final String filter, final String error, final boolean propagate) {
+        this.invalidFilter = filter;
+        this.error = error;
+        this.status = propagate ? Status.PASS_ALL : Status.DROP_ALL;
+        long now = System.nanoTime();
+        long last = lastLog.get();
+        if (now - last >= LOG_INTERVAL_NANOS && lastLog.compareAndSet(last, now)) {
+            log.warn(
+                "Message filter [{}] can not be evaluated, all messages are {} until it is fixed: {}",
+                filter,
+                propagate ? "propagated" : "filtered",
+                error
+            );
+        }
+    }
+
+    public void decided() {
+        decided.increment();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Usage of the memoized filter results, shared by all the compiled filters of a policy.
+ *
+ * @author GraviteeSource Team
+ */
+public class MemoizationMetrics {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    /**
+     * @return the number of evaluations answered by a memoized result
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of evaluations for which no result was memoized
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the ratio of evaluations answered by a memoized result, between 0 and 1
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
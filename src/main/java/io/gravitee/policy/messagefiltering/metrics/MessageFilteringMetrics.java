@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.metrics;
+
+import io.gravitee.policy.messagefiltering.budget.EvaluationBreaker;
+import io.gravitee.policy.messagefiltering.filter.CompiledFilterCache;
+import io.gravitee.policy.messagefiltering.filter.SharedCompiledFilters;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Filtering metrics of a policy instance, shared by all the connections going through it.
+ * It is exposed to the execution context under the {@link #ATTRIBUTE} attribute, i.e. <code>{#context.attributes['message-filtering.metrics'].request.filtered}</code>.
+ *
+ * @author GraviteeSource Team
+ */
+@RequiredArgsConstructor
+@Getter
+public class MessageFilteringMetrics {
+
+    public static final String ATTRIBUTE = "message-filtering.metrics";
+
+    private final PhaseMetrics request = new PhaseMetrics();
+    private final PhaseMetrics response = new PhaseMetrics();
+    private final FilterHealth health = new FilterHealth();
+    private final CompiledFilterCache compiledFilters;
+
+    /**
+     * Circuit breaker on the evaluation time of the filter, <code>null</code> when no evaluation budget is configured.
+     */
+    private final EvaluationBreaker breaker;
+
+    /**
+     * Usage of the memoized filter results, <code>null</code> when memoization is disabled.
+     */
+    private final MemoizationMetrics memoization;
+
+    public long getCompiledFilterHits() {
+        return compiledFilters.hits();
+    }
+
+    public long getCompiledFilterMisses() {
+        return compiledFilters.misses();
+    }
+
+    public long getCompiledFilterEvictions() {
+        return compiledFilters.evictions();
+    }
+
+    /**
+     * @return the number of compiled filters shared by all the policy instances of the node
+     */
+    public int getSharedCompiledFilters() {
+        return SharedCompiledFilters.size();
+    }
+}
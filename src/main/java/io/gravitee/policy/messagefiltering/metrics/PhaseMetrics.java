@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtering metrics of one message phase (request or response).
+ *
+ * @author GraviteeSource Team
+ */
+public class PhaseMetrics {
+
+    private final LongAdder matched = new LongAdder();
+    private final LongAdder filtered = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder errored = new LongAdder();
+    private final LatencyHistogram evaluation = new LatencyHistogram();
+
+    public void matched() {
+        matched.increment();
+    }
+
+    public void filtered() {
+        filtered.increment();
+    }
+
+    public void acked() {
+        acked.increment();
+    }
+
+    public void errored() {
+        errored.increment();
+    }
+
+    public void evaluated(final long nanos) {
+        evaluation.record(nanos);
+    }
+
+    /**
+     * @return the number of messages matching the filter, and so propagated
+     */
+    public long getMatched() {
+        return matched.sum();
+    }
+
+    /**
+     * @return the number of messages not matching the filter, and so dropped
+     */
+    public long getFiltered() {
+        return filtered.sum();
+    }
+
+    /**
+     * @return the number of dropped messages acknowledged to their source
+     */
+    public long getAcked() {
+        return acked.sum();
+    }
+
+    /**
+     * @return the number of messages for which the filter evaluation failed
+     */
+    public long getErrored() {
+        return errored.sum();
+    }
+
+    /**
+     * @return the time spent evaluating the filter per message, in nanoseconds
+     */
+    public LatencyHistogram getEvaluation() {
+        return evaluation;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.predicate;
+
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.json.ContentFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldExtractor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Values of the content paths referenced by a filter for a given message. The content is only parsed the first time a value is needed, and
+ * all the referenced paths are then extracted in the same pass.
+ *
+ * @author GraviteeSource Team
+ */
+class ContentFields {
+
+    private final ContentFieldExtractor extractor;
+    private final Message message;
+    private Object[] values;
+
+    ContentFields(final ContentFieldExtractor extractor, final Message message) {
+        this.extractor = extractor;
+        this.message = message;
+    }
+
+    Object get(final int index, final String path) {
+        if (values == null) {
+            try {
+                values = extractor.extract(message.content());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        Object value = values[index];
+        if (value == JsonFieldExtractor.NOT_FOUND) {
+            throw new IllegalArgumentException("No results for path: " + path);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.predicate;
+
+import io.gravitee.policy.messagefiltering.json.ContentFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Parser turning the common shapes of filter conditions into a tree of {@link MessagePredicate}.
+ * <p>
+ * Supported conditions are full templates (<code>{#...}</code> or <code>{(...)}</code>) combining with <code>&amp;&amp;</code>, <code>||</code>, <code>!</code> (or
+ * <code>and</code>, <code>or</code>, <code>not</code>) and parentheses, comparisons (<code>==</code>, <code>!=</code>, <code>&lt;</code>,
+ * <code>&lt;=</code>, <code>&gt;</code>, <code>&gt;=</code> or their textual forms) between literals and the following message references:
+ * <ul>
+ *     <li><code>#message.id</code></li>
+ *     <li><code>#message.headers['name']</code>, optionally indexed (<code>#message.headers['name'][0]</code>)</li>
+ *     <li><code>#message.attributes['name']</code> and <code>#message.metadata['name']</code>, optionally indexed</li>
+ *     <li><code>#jsonPath(#message.content, '$.definite.path')</code>, the content being then only parsed once per message with a streaming
+ *     {@link JsonFieldExtractor} (or the given {@link ContentFieldExtractor}) extracting every path referenced by the filter</li>
+ * </ul>
+ * Any other shape is reported as unsupported so the caller can fall back on the expression language engine.
+ *
+ * @author GraviteeSource Team
+ */
+public final class NativeFilterParser {
+
+    private final String source;
+    private final List<JsonFieldPath> jsonPaths = new ArrayList<>();
+    private int position;
+
+    private NativeFilterParser(final String source) {
+        this.source = source;
+    }
+
+    /**
+     * Parse the given filter.
+     *
+     * @param filter the filter condition
+     * @return the native predicate of the filter, or <code>null</code> if the filter shape is not supported
+     */
+    public static MessagePredicate parse(final String filter) {
+        return parse(filter, JsonFieldExtractor::new);
+    }
+
+    /**
+     * Parse the given filter, reading the content of the messages with the given extractors.
+     *
+     * @param filter the filter condition
+     * @param extractors the factory of the extractor of the content paths referenced by the filter
+     * @return the native predicate of the filter, or <code>null</code> if the filter shape is not supported
+     * @throws IllegalArgumentException if the extractor can not be built for the referenced paths
+     */
+    public static MessagePredicate parse(final String filter, final Function<List<JsonFieldPath>, ContentFieldExtractor> extractors) {
+        if (filter == null) {
+            return null;
+        }
+        String trimmed = filter.trim();
+        if (trimmed.length() < 2 || trimmed.charAt(0) != '{' || trimmed.charAt(trimmed.length() - 1) != '}') {
+            return null;
+        }
+        String source = trimmed.substring(1, trimmed.length() - 1);
+        String content = source.trim();
+        // As with the expression language, only templates starting with a variable or a parenthesis are evaluated, others are plain text
+        if (content.isEmpty() || (content.charAt(0) != '#' && content.charAt(0) != '(')) {
+            return null;
+        }
+        try {
+            NativeFilterParser parser = new NativeFilterParser(source);
+            MessageCondition condition = parser.parseOr();
+            parser.skipWhitespaces();
+            if (parser.position != parser.source.length()) {
+                return null;
+            }
+            if (parser.jsonPaths.isEmpty()) {
+                return message -> condition.test(message, null);
+            }
+            ContentFieldExtractor extractor = extractors.apply(parser.jsonPaths);
+            return message -> condition.test(message, new ContentFields(extractor, message));
+        } catch (UnsupportedFilterException e) {
+            return null;
+        }
+    }
+
+    private MessageCondition parseOr() {
+        MessageCondition left = parseAnd();
+        while (consumeOperator("||") || consumeKeyword("or")) {
+            MessageCondition first = left;
+            MessageCondition second = parseAnd();
+            left = (message, fields) -> first.test(message, fields) || second.test(message, fields);
+        }
+        return left;
+    }
+
+    private MessageCondition parseAnd() {
+        MessageCondition left = parseNot();
+        while (consumeOperator("&&") || consumeKeyword("and")) {
+            MessageCondition first = left;
+            MessageCondition second = parseNot();
+            left = (message, fields) -> first.test(message, fields) && second.test(message, fields);
+        }
+        return left;
+    }
+
+    private MessageCondition parseNot() {
+        if (consumeOperator("!") || consumeKeyword("not")) {
+            MessageCondition negated = parseNegated();
+            // As in the expression language, the negation binds tighter than a comparison, which would then compare the negated value
+            if (isComparisonAhead()) {
+                throw new UnsupportedFilterException();
+            }
+            return (message, fields) -> !negated.test(message, fields);
+        }
+        return parseComparison();
+    }
+
+    /**
+     * Parse the operand of a negation, i.e. another negation, a group or a single value.
+     */
+    private MessageCondition parseNegated() {
+        if (consumeOperator("!") || consumeKeyword("not")) {
+            MessageCondition negated = parseNegated();
+            return (message, fields) -> !negated.test(message, fields);
+        }
+        if (peek('(')) {
+            position++;
+            MessageCondition group = parseOr();
+            expect(')');
+            return group;
+        }
+        MessageValue operand = parseOperand();
+        return (message, fields) -> ValueComparisons.asBoolean(operand.resolve(message, fields));
+    }
+
+    private MessageCondition parseComparison() {
+        if (peek('(')) {
+            position++;
+            MessageCondition group = parseOr();
+            expect(')');
+            // A group is only supported as a condition on its own, the expression language would compare its value otherwise
+            if (isComparisonAhead()) {
+                throw new UnsupportedFilterException();
+            }
+            return group;
+        }
+        MessageValue left = parseOperand();
+        if (consumeOperator("==") || consumeKeyword("eq")) {
+            MessageValue right = parseOperand();
+            return (message, fields) -> ValueComparisons.isEqual(left.resolve(message, fields), right.resolve(message, fields));
+        } else if (consumeOperator("!=") || consumeKeyword("ne")) {
+            MessageValue right = parseOperand();
+            return (message, fields) -> !ValueComparisons.isEqual(left.resolve(message, fields), right.resolve(message, fields));
+        } else if (consumeOperator("<=") || consumeKeyword("le")) {
+            MessageValue right = parseOperand();
+            return (message, fields) -> ValueComparisons.compare(left.resolve(message, fields), right.resolve(message, fields)) <= 0;
+        } else if (consumeOperator(">=") || consumeKeyword("ge")) {
+            MessageValue right = parseOperand();
+            return (message, fields) -> ValueComparisons.compare(left.resolve(message, fields), right.resolve(message, fields)) >= 0;
+        } else if (consumeOperator("<") || consumeKeyword("lt")) {
+            MessageValue right = parseOperand();
+            return (message, fields) -> ValueComparisons.compare(left.resolve(message, fields), right.resolve(message, fields)) < 0;
+        } else if (consumeOperator(">") || consumeKeyword("gt")) {
+            MessageValue right = parseOperand();
+            return (message, fields) -> ValueComparisons.compare(left.resolve(message, fields), right.resolve(message, fields)) > 0;
+        }
+        return (message, fields) -> ValueComparisons.asBoolean(left.resolve(message, fields));
+    }
+
+    private MessageValue parseOperand() {
+        skipWhitespaces();
+        if (position >= source.length()) {
+            throw new UnsupportedFilterException();
+        }
+        char current = source.charAt(position);
+        if (current == '\'' || current == '"') {
+            String literal = parseString();
+            return (message, fields) -> literal;
+        }
+        if (Character.isDigit(current) || (current == '-' && position + 1 < source.length() && Character.isDigit(source.charAt(position + 1)))) {
+            Object literal = parseNumber();
+            return (message, fields) -> literal;
+        }
+        if (current == '#') {
+            position++;
+            return parseReference();
+        }
+        if (consumeKeyword("true")) {
+            return (message, fields) -> Boolean.TRUE;
+        }
+        if (consumeKeyword("false")) {
+            return (message, fields) -> Boolean.FALSE;
+        }
+        if (consumeKeyword("null")) {
+            return (message, fields) -> null;
+        }
+        throw new UnsupportedFilterException();
+    }
+
+    private MessageValue parseReference() {
+        String variable = parseIdentifier();
+        if ("jsonPath".equals(variable)) {
+            return parseJsonPath();
+        }
+        if (!"message".equals(variable)) {
+            throw new UnsupportedFilterException();
+        }
+        expect('.');
+        String property = parseIdentifier();
+        MessageValue value;
+        switch (property) {
+            case "id":
+                value = (message, fields) -> message.id();
+                break;
+            case "headers":
+                {
+                    String name = parseKey();
+                    value =
+                        (message, fields) -> {
+                            List<String> values = message.headers().getAll(name);
+                            return values == null || values.isEmpty() ? null : values;
+                        };
+                    break;
+                }
+            case "attributes":
+                {
+                    String name = parseKey();
+                    value = (message, fields) -> message.attribute(name);
+                    break;
+                }
+            case "metadata":
+                {
+                    String name = parseKey();
+                    value = (message, fields) -> message.metadata() == null ? null : message.metadata().get(name);
+                    break;
+                }
+            default:
+                throw new UnsupportedFilterException();
+        }
+        return parseIndexes(value);
+    }
+
+    private MessageValue parseJsonPath() {
+        expect('(');
+        expect('#');
+        if (!"message".equals(parseIdentifier())) {
+            throw new UnsupportedFilterException();
+        }
+        expect('.');
+        if (!"content".equals(parseIdentifier())) {
+            throw new UnsupportedFilterException();
+        }
+        expect(',');
+        skipWhitespaces();
+        if (position >= source.length() || (source.charAt(position) != '\'' && source.charAt(position) != '"')) {
+            throw new UnsupportedFilterException();
+        }
+        JsonFieldPath path = JsonFieldPath.parse(parseString());
+        expect(')');
+        if (path == null) {
+            throw new UnsupportedFilterException();
+        }
+        int index = jsonPaths.indexOf(path);
+        if (index < 0) {
+            index = jsonPaths.size();
+            jsonPaths.add(path);
+        }
+        int fieldIndex = index;
+        String jsonPath = path.getPath();
+        return (message, fields) -> fields.get(fieldIndex, jsonPath);
+    }
+
+    private MessageValue parseIndexes(final MessageValue target) {
+        MessageValue value = target;
+        while (peek('[')) {
+            position++;
+            skipWhitespaces();
+            int start = position;
+            while (position < source.length() && Character.isDigit(source.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw new UnsupportedFilterException();
+            }
+            int index = Integer.parseInt(source.substring(start, position));
+            expect(']');
+            MessageValue indexed = value;
+            value = (message, fields) -> ValueComparisons.index(indexed.resolve(message, fields), index);
+        }
+        return value;
+    }
+
+    private String parseKey() {
+        expect('[');
+        skipWhitespaces();
+        if (position >= source.length() || (source.charAt(position) != '\'' && source.charAt(position) != '"')) {
+            throw new UnsupportedFilterException();
+        }
+        String key = parseString();
+        expect(']');
+        return key;
+    }
+
+    private String parseIdentifier() {
+        int start = position;
+        while (position < source.length() && Character.isJavaIdentifierPart(source.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            throw new UnsupportedFilterException();
+        }
+        return source.substring(start, position);
+    }
+
+    private String parseString() {
+        char quote = source.charAt(position++);
+        StringBuilder literal = new StringBuilder();
+        while (position < source.length()) {
+            char current = source.charAt(position++);
+            if (current == quote) {
+                // As in the expression language, a doubled quote is an escaped quote
+                if (position < source.length() && source.charAt(position) == quote) {
+                    literal.append(quote);
+                    position++;
+                } else {
+                    return literal.toString();
+                }
+            } else {
+                literal.append(current);
+            }
+        }
+        throw new UnsupportedFilterException();
+    }
+
+    private Object parseNumber() {
+        int start = position;
+        if (source.charAt(position) == '-') {
+            position++;
+        }
+        boolean decimal = false;
+        while (position < source.length()) {
+            char current = source.charAt(position);
+            if (current == '.' && !decimal && position + 1 < source.length() && Character.isDigit(source.charAt(position + 1))) {
+                decimal = true;
+            } else if (!Character.isDigit(current)) {
+                break;
+            }
+            position++;
+        }
+        String number = source.substring(start, position);
+        if (decimal) {
+            return Double.valueOf(number);
+        }
+        if (position < source.length() && (source.charAt(position) == 'L' || source.charAt(position) == 'l')) {
+            position++;
+            return Long.valueOf(number);
+        }
+        try {
+            return Integer.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw new UnsupportedFilterException();
+        }
+    }
+
+    private boolean consumeOperator(final String operator) {
+        skipWhitespaces();
+        if (!source.startsWith(operator, position)) {
+            return false;
+        }
+        int end = position + operator.length();
+        // Do not mistake '!=' for '!', '<=' for '<' nor '>=' for '>'
+        if (operator.length() == 1 && end < source.length() && source.charAt(end) == '=') {
+            return false;
+        }
+        position = end;
+        return true;
+    }
+
+    private boolean consumeKeyword(final String keyword) {
+        skipWhitespaces();
+        int end = position + keyword.length();
+        if (!source.regionMatches(true, position, keyword, 0, keyword.length())) {
+            return false;
+        }
+        if (end < source.length() && Character.isJavaIdentifierPart(source.charAt(end))) {
+            return false;
+        }
+        position = end;
+        return true;
+    }
+
+    private boolean isComparisonAhead() {
+        int start = position;
+        boolean comparison =
+            consumeOperator("==") ||
+            consumeOperator("!=") ||
+            consumeOperator("<=") ||
+            consumeOperator(">=") ||
+            consumeOperator("<") ||
+            consumeOperator(">") ||
+            consumeKeyword("eq") ||
+            consumeKeyword("ne") ||
+            consumeKeyword("le") ||
+            consumeKeyword("ge") ||
+            consumeKeyword("lt") ||
+            consumeKeyword("gt");
+        position = start;
+        return comparison;
+    }
+
+    private boolean peek(final char expected) {
+        skipWhitespaces();
+        return position < source.length() && source.charAt(position) == expected;
+    }
+
+    private void expect(final char expected) {
+        if (!peek(expected)) {
+            throw new UnsupportedFilterException();
+        }
+        position++;
+    }
+
+    private void skipWhitespaces() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static final class UnsupportedFilterException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedFilterException() {
+            super(null, null, false, false);
+        }
+    }
+}
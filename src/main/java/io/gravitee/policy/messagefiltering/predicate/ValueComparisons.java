@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.predicate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Comparison and conversion rules applied by native predicates. They follow the ones of the expression language so both engines give the
+ * same result for a given filter.
+ *
+ * @author GraviteeSource Team
+ */
+final class ValueComparisons {
+
+    private ValueComparisons() {}
+
+    static boolean isEqual(final Object left, final Object right) {
+        if (left == right) {
+            return true;
+        }
+        if (left == null || right == null) {
+            return false;
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return compareNumbers((Number) left, (Number) right) == 0;
+        }
+        if (left instanceof CharSequence && right instanceof CharSequence) {
+            return left.toString().equals(right.toString());
+        }
+        return left.equals(right);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static int compare(final Object left, final Object right) {
+        if (left == null) {
+            return right == null ? 0 : -1;
+        }
+        if (right == null) {
+            return 1;
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return compareNumbers((Number) left, (Number) right);
+        }
+        if (left instanceof Comparable && left.getClass().isInstance(right)) {
+            return ((Comparable) left).compareTo(right);
+        }
+        throw new IllegalArgumentException(
+            "Cannot compare instances of " + left.getClass().getName() + " and " + right.getClass().getName()
+        );
+    }
+
+    static boolean asBoolean(final Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof String) {
+            switch (((String) value).trim().toLowerCase()) {
+                case "true":
+                case "on":
+                case "yes":
+                case "1":
+                    return true;
+                case "false":
+                case "off":
+                case "no":
+                case "0":
+                    return false;
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException("Cannot convert " + value + " to a boolean");
+    }
+
+    static Object index(final Object target, final int index) {
+        if (target instanceof List) {
+            return ((List<?>) target).get(index);
+        }
+        if (target instanceof String) {
+            return String.valueOf(((String) target).charAt(index));
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("Cannot index into a null value");
+        }
+        throw new IllegalArgumentException("Cannot index into an instance of " + target.getClass().getName());
+    }
+
+    private static int compareNumbers(final Number left, final Number right) {
+        if (isBig(left) || isBig(right)) {
+            return toBigDecimal(left).compareTo(toBigDecimal(right));
+        }
+        if (isFloating(left) || isFloating(right)) {
+            return Double.compare(left.doubleValue(), right.doubleValue());
+        }
+        return Long.compare(left.longValue(), right.longValue());
+    }
+
+    private static boolean isBig(final Number number) {
+        return number instanceof BigDecimal || number instanceof BigInteger;
+    }
+
+    private static boolean isFloating(final Number number) {
+        return number instanceof Double || number instanceof Float;
+    }
+
+    private static BigDecimal toBigDecimal(final Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (isFloating(number)) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.sampling;
+
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.filter.MessageFilter;
+import io.gravitee.policy.messagefiltering.key.MessageKeyResolver;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Keep up to a given rate of messages per key, using a token bucket per key. A message without key is always kept.
+ * <p>
+ * Buckets are spread over {@value #STRIPES} independently locked stripes, each one being a bounded map in access order: buckets idle for longer
+ * than the idle timeout are evicted when the stripe is accessed, and the least recently used bucket is evicted when the stripe is full. An evicted
+ * key starts again with a full bucket.
+ *
+ * @author GraviteeSource Team
+ */
+public class KeyRateLimiter implements MessageFilter {
+
+    private static final int STRIPES = 16;
+
+    private final MessageKeyResolver keyResolver;
+    private final double tokensPerNano;
+    private final double burst;
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public KeyRateLimiter(
+        final MessageKeyResolver keyResolver,
+        final double rate,
+        final int burst,
+        final int maxKeys,
+        final long idleTimeoutNanos
+    ) {
+        this(keyResolver, rate, burst, maxKeys, idleTimeoutNanos, System::nanoTime);
+    }
+
+    KeyRateLimiter(
+        final MessageKeyResolver keyResolver,
+        final double rate,
+        final int burst,
+        final int maxKeys,
+        final long idleTimeoutNanos,
+        final LongSupplier clock
+    ) {
+        this.keyResolver = keyResolver;
+        this.tokensPerNano = rate / 1_000_000_000d;
+        this.burst = Math.max(1, burst);
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.clock = clock;
+        int keysPerStripe = Math.max(1, (maxKeys + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(keysPerStripe);
+        }
+    }
+
+    @Override
+    public boolean evaluate(final MessageExecutionContext ctx, final Message message) {
+        String key = keyResolver.resolve(ctx, message);
+        if (key == null) {
+            return true;
+        }
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)].tryAcquire(key, clock.getAsLong());
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private class Stripe {
+
+        private final LinkedHashMap<String, Bucket> buckets;
+
+        private Stripe(final int maxKeys) {
+            this.buckets =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(final Map.Entry<String, Bucket> eldest) {
+                        return size() > maxKeys;
+                    }
+                };
+        }
+
+        private synchronized boolean tryAcquire(final String key, final long now) {
+            evictIdle(now);
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(burst, now);
+                buckets.put(key, bucket);
+            } else {
+                bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.updated) * tokensPerNano);
+                bucket.updated = now;
+            }
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        private void evictIdle(final long now) {
+            // Buckets are in access order, so idle ones are at the beginning
+            Iterator<Bucket> iterator = buckets.values().iterator();
+            while (iterator.hasNext() && now - iterator.next().updated > idleTimeoutNanos) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class Bucket {
+
+        private double tokens;
+        private long updated;
+
+        private Bucket(final double tokens, final long updated) {
+            this.tokens = tokens;
+            this.updated = updated;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.sampling;
+
+import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.filter.MessageFilter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keep one message out of N, starting with the first one.
+ *
+ * @author GraviteeSource Team
+ */
+public class OneInNSampler implements MessageFilter {
+
+    private final long n;
+    private final AtomicLong count = new AtomicLong();
+
+    public OneInNSampler(final int n) {
+        this.n = Math.max(1, n);
+    }
+
+    @Override
+    public boolean evaluate(final MessageExecutionContext ctx, final Message message) {
+        return count.getAndIncrement() % n == 0;
+    }
+}
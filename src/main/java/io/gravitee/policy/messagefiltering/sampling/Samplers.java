@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.sampling;
+
+import io.gravitee.policy.messagefiltering.configuration.SamplingConfiguration;
+import io.gravitee.policy.messagefiltering.filter.MessageFilter;
+import io.gravitee.policy.messagefiltering.key.MessageKeyResolver;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author GraviteeSource Team
+ */
+public final class Samplers {
+
+    private Samplers() {}
+
+    public static MessageFilter of(final SamplingConfiguration configuration) {
+        switch (configuration.getMode()) {
+            case PROBABILITY:
+                return new ProbabilitySampler(configuration.getProbability());
+            case RATE_PER_KEY:
+                return new KeyRateLimiter(
+                    new MessageKeyResolver(configuration.getSource(), configuration.getKey()),
+                    configuration.getRate(),
+                    configuration.getBurst(),
+                    configuration.getMaxKeys(),
+                    TimeUnit.MILLISECONDS.toNanos(configuration.getIdleTimeout())
+                );
+            default:
+                return new OneInNSampler(configuration.getN());
+        }
+    }
+}
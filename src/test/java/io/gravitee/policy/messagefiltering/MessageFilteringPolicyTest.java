@@ -16,14 +16,19 @@
 package io.gravitee.policy.messagefiltering;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import io.gravitee.el.TemplateContext;
 import io.gravitee.el.TemplateEngine;
 import io.gravitee.gateway.api.buffer.Buffer;
 import io.gravitee.gateway.reactive.api.context.MessageExecutionContext;
@@ -31,9 +36,40 @@ import io.gravitee.gateway.reactive.api.context.MessageRequest;
 import io.gravitee.gateway.reactive.api.context.MessageResponse;
 import io.gravitee.gateway.reactive.api.message.DefaultMessage;
 import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.budget.EvaluationBreaker;
+import io.gravitee.policy.messagefiltering.configuration.BinaryContentConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.BinaryFormat;
+import io.gravitee.policy.messagefiltering.configuration.ConditionsOperator;
+import io.gravitee.policy.messagefiltering.configuration.ContentMatchConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.ContentMatchMode;
+import io.gravitee.policy.messagefiltering.configuration.DeduplicationConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.EvaluationBudgetConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.MemoizationConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.MessageKeySource;
+import io.gravitee.policy.messagefiltering.configuration.FilterEngine;
+import io.gravitee.policy.messagefiltering.configuration.MembershipConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.MembershipKeySource;
+import io.gravitee.policy.messagefiltering.configuration.MembershipMode;
 import io.gravitee.policy.messagefiltering.configuration.MessageFilteringPolicyConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.MicroBatchConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.SamplingConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.SamplingMode;
+import io.gravitee.policy.messagefiltering.filter.CompiledFilter;
+import io.gravitee.policy.messagefiltering.metrics.FilterHealth;
+import io.gravitee.policy.messagefiltering.metrics.MessageFilteringMetrics;
+import io.gravitee.policy.messagefiltering.metrics.PhaseMetrics;
 import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
 import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayNameGeneration;
@@ -41,6 +77,7 @@ import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
@@ -348,4 +385,1009 @@ class MessageFilteringPolicyTest {
             verify(message, never()).ack();
         }
     }
+
+    @Nested
+    class NativeEngine {
+
+        @BeforeEach
+        public void init() {
+            configuration.setEngine(FilterEngine.NATIVE);
+        }
+
+        @Test
+        void should_not_filter_messages_without_template_engine_when_native_predicate_is_true() {
+            configuration.setFilter("{#message.headers['X-Type'][0] == 'order'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+            message.headers().set("X-Type", "order");
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+            verify(ctx, never()).getTemplateEngine(any());
+        }
+
+        @Test
+        void should_filter_and_ack_messages_without_template_engine_when_native_predicate_is_false() {
+            configuration.setFilter("{#message.headers['X-Type'][0] == 'order'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.response().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = spy(DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build());
+            message.headers().set("X-Type", "invoice");
+            messageCaptor.getValue().apply(message).test().assertComplete();
+            verify(message).ack();
+            verify(ctx, never()).getTemplateEngine(any());
+        }
+
+        @Test
+        void should_fall_back_on_template_engine_when_filter_is_not_supported() {
+            configuration.setFilter("{#message.content matches 'con.*'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#message.content matches 'con.*'}", boolean.class)).thenReturn(true);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+        }
+
+        @Test
+        void should_apply_filterMessageOnFilteringError_when_native_predicate_fails() {
+            configuration.setFilter("{#message.headers['X-Missing'][0] == 'order'}");
+            configuration.setFilterMessageOnFilteringError(false);
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+        }
+    }
+
+    @Nested
+    class Metrics {
+
+        @Test
+        void should_count_request_messages_per_outcome() {
+            configuration.setFilterMessageOnFilteringError(false);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(true, false).thenThrow(new RuntimeException());
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+            verify(ctx).setAttribute(MessageFilteringMetrics.ATTRIBUTE, cut.metrics());
+
+            for (int i = 0; i < 3; i++) {
+                DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+                messageCaptor.getValue().apply(message).test().assertNoErrors();
+            }
+
+            PhaseMetrics metrics = cut.metrics().getRequest();
+            assertThat(metrics.getMatched()).isEqualTo(2);
+            assertThat(metrics.getFiltered()).isEqualTo(1);
+            assertThat(metrics.getAcked()).isEqualTo(1);
+            assertThat(metrics.getErrored()).isEqualTo(1);
+            assertThat(metrics.getEvaluation().count()).isEqualTo(3);
+            assertThat(cut.metrics().getResponse().getMatched()).isZero();
+        }
+
+        @Test
+        void should_count_response_messages_and_compiled_filter_cache_usage() {
+            when(ctx.response().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(false);
+            configuration.setAckFilteredMessage(false);
+            cut.onMessageResponse(ctx).test().assertComplete();
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response, times(2)).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+            messageCaptor.getValue().apply(message).test().assertComplete();
+
+            assertThat(cut.metrics().getResponse().getFiltered()).isEqualTo(1);
+            assertThat(cut.metrics().getResponse().getAcked()).isZero();
+            assertThat(cut.metrics().getCompiledFilterMisses()).isEqualTo(1);
+            assertThat(cut.metrics().getCompiledFilterHits()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    class BatchedAck {
+
+        @Captor
+        ArgumentCaptor<FlowableTransformer<Message, Message>> messagesCaptor;
+
+        @BeforeEach
+        void init() {
+            configuration.setAckBatchSize(2);
+            configuration.setAckBatchInterval(0);
+            lenient().when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+        }
+
+        @Test
+        void should_ack_filtered_request_messages_by_batch() {
+            when(ctx.request().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(false, true, false, false);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessages(messagesCaptor.capture());
+
+            DefaultMessage first = spy(DefaultMessage.builder().id("1").build());
+            DefaultMessage second = spy(DefaultMessage.builder().id("2").build());
+            DefaultMessage third = spy(DefaultMessage.builder().id("3").build());
+            DefaultMessage fourth = spy(DefaultMessage.builder().id("4").build());
+            PublishProcessor<Message> messages = PublishProcessor.create();
+            TestSubscriber<Message> obs = messages.compose(messagesCaptor.getValue()).test();
+
+            messages.onNext(first);
+            messages.onNext(second);
+            messages.onNext(third);
+            verify(first, never()).ack();
+            messages.onNext(fourth);
+
+            obs.assertValue(second);
+            verify(first).ack();
+            verify(second, never()).ack();
+            verify(third).ack();
+            verify(fourth).ack();
+        }
+
+        @Test
+        void should_ack_pending_response_messages_on_completion() {
+            when(ctx.response().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(false);
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response).onMessages(messagesCaptor.capture());
+
+            DefaultMessage message = spy(DefaultMessage.builder().id("1").build());
+            Flowable.<Message>just(message).compose(messagesCaptor.getValue()).test().assertComplete();
+
+            verify(message).ack();
+        }
+
+        @Test
+        void should_ack_pending_messages_on_error() {
+            when(ctx.request().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(false);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessages(messagesCaptor.capture());
+
+            DefaultMessage message = spy(DefaultMessage.builder().id("1").build());
+            Flowable
+                .<Message>just(message)
+                .concatWith(Flowable.error(new RuntimeException()))
+                .compose(messagesCaptor.getValue())
+                .test()
+                .assertError(RuntimeException.class);
+
+            verify(message).ack();
+        }
+
+        @Test
+        void should_ack_pending_messages_on_cancellation() {
+            when(ctx.request().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(false);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessages(messagesCaptor.capture());
+
+            DefaultMessage message = spy(DefaultMessage.builder().id("1").build());
+            TestSubscriber<Message> obs = Flowable
+                .<Message>just(message)
+                .concatWith(Flowable.never())
+                .compose(messagesCaptor.getValue())
+                .test();
+            verify(message, never()).ack();
+            obs.cancel();
+
+            verify(message).ack();
+        }
+
+        @Test
+        void should_not_ack_filtered_messages_when_ackFilteredMessage_is_false() {
+            configuration.setAckFilteredMessage(false);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(false);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = spy(DefaultMessage.builder().id("1").build());
+            messageCaptor.getValue().apply(message).test().assertComplete();
+
+            verify(message, never()).ack();
+        }
+    }
+
+    @Nested
+    class Conditions {
+
+        @BeforeEach
+        void init() {
+            configuration.setFilter("{#filter}");
+            configuration.setConditions(List.of("{#condition}"));
+            lenient().when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            lenient().when(templateEngine.getValue("{#filter}", boolean.class)).thenReturn(true);
+            lenient().when(templateEngine.getValue("{#condition}", boolean.class)).thenReturn(false);
+        }
+
+        @Test
+        void should_filter_request_messages_when_one_condition_does_not_match_with_and_operator() {
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+            messageCaptor.getValue().apply(message).test().assertComplete().assertNoValues();
+        }
+
+        @Test
+        void should_not_filter_response_messages_when_one_condition_matches_with_or_operator() {
+            configuration.setConditionsOperator(ConditionsOperator.OR);
+            when(ctx.response().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+        }
+
+        @Test
+        void should_compute_each_condition() {
+            when(templateEngine.getValue("{#condition}", Object.class)).thenReturn("{#computed}");
+            when(templateEngine.getValue("{#computed}", boolean.class)).thenReturn(true);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+        }
+    }
+
+    @Nested
+    class InvalidFilter {
+
+        @BeforeEach
+        void init() {
+            configuration.setFilter("{#message.id ==}");
+        }
+
+        @Test
+        void should_filter_all_request_messages_without_evaluating_them_when_filterMessageOnFilteringError_is_true() {
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = spy(DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build());
+            messageCaptor.getValue().apply(message).test().assertComplete().assertNoValues();
+
+            verify(message).ack();
+            verify(ctx, never()).getTemplateEngine(any());
+            FilterHealth health = cut.metrics().getHealth();
+            assertThat(health.getStatus()).isEqualTo(FilterHealth.Status.DROP_ALL);
+            assertThat(health.getInvalidFilter()).isEqualTo("{#message.id ==}");
+            assertThat(health.getError()).isNotBlank();
+            assertThat(health.getDecidedMessages()).isEqualTo(1);
+        }
+
+        @Test
+        void should_propagate_all_response_messages_without_evaluating_them_when_filterMessageOnFilteringError_is_false() {
+            configuration.setFilterMessageOnFilteringError(false);
+            when(ctx.response().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+
+            verify(ctx, never()).getTemplateEngine(any());
+            assertThat(cut.metrics().getHealth().getStatus()).isEqualTo(FilterHealth.Status.PASS_ALL);
+        }
+
+        @Test
+        void should_detect_invalid_condition() {
+            configuration.setFilter("{#message.id == 'id'}");
+            configuration.setConditions(List.of("{#message.id ==}"));
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+
+            assertThat(cut.metrics().getHealth().getStatus()).isEqualTo(FilterHealth.Status.DROP_ALL);
+        }
+
+        @Test
+        void should_be_healthy_when_filter_is_valid() {
+            configuration.setFilter("{#message.id == 'id'}");
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+
+            assertThat(cut.metrics().getHealth().isHealthy()).isTrue();
+        }
+    }
+
+    @Nested
+    class Membership {
+
+        @TempDir
+        Path directory;
+
+        @BeforeEach
+        void init() throws IOException {
+            Path file = Files.write(directory.resolve("tenants.txt"), List.of("allowed"));
+            configuration.setMembership(
+                new MembershipConfiguration(true, MembershipKeySource.HEADER, "X-Tenant", file.toString(), MembershipMode.ALLOW, false)
+            );
+            cut = new MessageFilteringPolicy(configuration);
+        }
+
+        @Test
+        void should_filter_request_messages_which_are_not_members_without_evaluating_them() {
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage allowed = DefaultMessage.builder().id("1").build();
+            allowed.headers().set("X-Tenant", "allowed");
+            DefaultMessage denied = DefaultMessage.builder().id("2").build();
+            denied.headers().set("X-Tenant", "denied");
+            messageCaptor.getValue().apply(allowed).test().assertValue(allowed);
+            messageCaptor.getValue().apply(denied).test().assertComplete().assertNoValues();
+
+            verify(ctx, never()).getTemplateEngine(any());
+        }
+
+        @Test
+        void should_combine_membership_with_filter() {
+            configuration.setFilter("{#filter}");
+            when(ctx.response().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#filter}", boolean.class)).thenReturn(false);
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("1").build();
+            message.headers().set("X-Tenant", "allowed");
+            messageCaptor.getValue().apply(message).test().assertComplete().assertNoValues();
+        }
+
+        @Test
+        void should_ignore_membership_when_disabled() {
+            configuration.getMembership().setEnabled(false);
+            configuration.setFilter("{#filter}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#filter}", boolean.class)).thenReturn(true);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("1").build();
+            message.headers().set("X-Tenant", "denied");
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+        }
+    }
+
+    @Nested
+    class Deduplication {
+
+        @Test
+        void should_filter_and_ack_duplicated_request_messages() {
+            configuration.setDeduplication(new DeduplicationConfiguration(true, MessageKeySource.ID, null, 60_000, 1_000));
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = spy(DefaultMessage.builder().id("id").build());
+            DefaultMessage duplicate = spy(DefaultMessage.builder().id("id").build());
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+            messageCaptor.getValue().apply(duplicate).test().assertComplete().assertNoValues();
+
+            verify(message, never()).ack();
+            verify(duplicate).ack();
+        }
+
+        @Test
+        void should_only_deduplicate_response_messages_matching_the_filter() {
+            configuration.setFilter("{#filter}");
+            configuration.setDeduplication(new DeduplicationConfiguration(true, MessageKeySource.HEADER, "X-Key", 60_000, 1_000));
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.response().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#filter}", boolean.class)).thenReturn(false, true, true);
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response).onMessage(messageCaptor.capture());
+
+            DefaultMessage filtered = DefaultMessage.builder().id("1").build();
+            filtered.headers().set("X-Key", "key");
+            DefaultMessage first = DefaultMessage.builder().id("2").build();
+            first.headers().set("X-Key", "key");
+            DefaultMessage duplicate = DefaultMessage.builder().id("3").build();
+            duplicate.headers().set("X-Key", "key");
+            messageCaptor.getValue().apply(filtered).test().assertComplete().assertNoValues();
+            messageCaptor.getValue().apply(first).test().assertValue(first);
+            messageCaptor.getValue().apply(duplicate).test().assertComplete().assertNoValues();
+        }
+
+        @Test
+        void should_deduplicate_messages_of_each_flow_independently() {
+            configuration.setDeduplication(new DeduplicationConfiguration(true, MessageKeySource.ID, null, 60_000, 1_000));
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(ctx.response().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+            cut.onMessageRequest(ctx).test().assertComplete();
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(request, times(2)).onMessage(messageCaptor.capture());
+            verify(response).onMessage(messageCaptor.capture());
+
+            for (Function<Message, Maybe<Message>> flow : messageCaptor.getAllValues()) {
+                DefaultMessage message = DefaultMessage.builder().id("id").build();
+                DefaultMessage duplicate = DefaultMessage.builder().id("id").build();
+                flow.apply(message).test().assertValue(message);
+                flow.apply(duplicate).test().assertComplete().assertNoValues();
+            }
+        }
+    }
+
+    @Nested
+    class Sampling {
+
+        @Test
+        void should_sample_request_messages_matching_the_filter_and_ack_the_others() {
+            SamplingConfiguration sampling = new SamplingConfiguration();
+            sampling.setEnabled(true);
+            sampling.setMode(SamplingMode.ONE_IN_N);
+            sampling.setN(2);
+            configuration.setSampling(sampling);
+            configuration.setFilter("{#filter}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#filter}", boolean.class)).thenReturn(false, true, true, true);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage filtered = spy(DefaultMessage.builder().id("1").build());
+            DefaultMessage kept = spy(DefaultMessage.builder().id("2").build());
+            DefaultMessage sampledOut = spy(DefaultMessage.builder().id("3").build());
+            DefaultMessage keptAgain = spy(DefaultMessage.builder().id("4").build());
+            messageCaptor.getValue().apply(filtered).test().assertNoValues();
+            messageCaptor.getValue().apply(kept).test().assertValue(kept);
+            messageCaptor.getValue().apply(sampledOut).test().assertNoValues();
+            messageCaptor.getValue().apply(keptAgain).test().assertValue(keptAgain);
+
+            verify(filtered).ack();
+            verify(sampledOut).ack();
+            verify(kept, never()).ack();
+        }
+
+        @Test
+        void should_sample_messages_of_each_flow_independently() {
+            SamplingConfiguration sampling = new SamplingConfiguration();
+            sampling.setEnabled(true);
+            sampling.setMode(SamplingMode.ONE_IN_N);
+            sampling.setN(2);
+            configuration.setSampling(sampling);
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(ctx.response().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+            cut.onMessageRequest(ctx).test().assertComplete();
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(request, times(2)).onMessage(messageCaptor.capture());
+            verify(response).onMessage(messageCaptor.capture());
+
+            for (Function<Message, Maybe<Message>> flow : messageCaptor.getAllValues()) {
+                DefaultMessage kept = DefaultMessage.builder().id("1").build();
+                DefaultMessage sampledOut = DefaultMessage.builder().id("2").build();
+                flow.apply(kept).test().assertValue(kept);
+                flow.apply(sampledOut).test().assertComplete().assertNoValues();
+            }
+        }
+    }
+
+    @Nested
+    class Parallel {
+
+        @Captor
+        ArgumentCaptor<FlowableTransformer<Message, Message>> messagesCaptor;
+
+        @Test
+        void should_keep_message_order_when_evaluating_messages_in_parallel() {
+            configuration.setEngine(FilterEngine.NATIVE);
+            configuration.setFilter("{#message.headers['X-Keep'][0] == 'true'}");
+            configuration.setParallelism(4);
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessages(messagesCaptor.capture());
+
+            List<Message> messages = new ArrayList<>();
+            List<Message> expected = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                DefaultMessage message = DefaultMessage.builder().id(String.valueOf(i)).build();
+                message.headers().set("X-Keep", String.valueOf(i % 3 != 0));
+                messages.add(message);
+                if (i % 3 != 0) {
+                    expected.add(message);
+                }
+            }
+            TestSubscriber<Message> obs = Flowable.fromIterable(messages).compose(messagesCaptor.getValue()).test();
+
+            obs.awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueSequence(expected);
+            assertThat(cut.metrics().getRequest().getFiltered()).isEqualTo(34);
+        }
+
+        @Test
+        void should_ack_filtered_messages_by_batch_when_evaluating_messages_in_parallel() {
+            configuration.setParallelism(4);
+            configuration.setAckBatchSize(10);
+            configuration.setAckBatchInterval(0);
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.response().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(false);
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response).onMessages(messagesCaptor.capture());
+
+            DefaultMessage first = spy(DefaultMessage.builder().id("1").build());
+            DefaultMessage second = spy(DefaultMessage.builder().id("2").build());
+            Flowable
+                .<Message>just(first, second)
+                .compose(messagesCaptor.getValue())
+                .test()
+                .awaitDone(10, TimeUnit.SECONDS)
+                .assertComplete()
+                .assertNoValues();
+
+            verify(first).ack();
+            verify(second).ack();
+        }
+
+        @Test
+        void should_keep_first_occurrence_of_duplicated_messages_when_evaluating_messages_in_parallel() {
+            configuration.setEngine(FilterEngine.NATIVE);
+            configuration.setFilter("{#message.headers['X-Keep'][0] == 'true'}");
+            configuration.setDeduplication(new DeduplicationConfiguration(true, MessageKeySource.ID, null, 60_000, 1_000));
+            configuration.setParallelism(4);
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessages(messagesCaptor.capture());
+
+            List<Message> messages = new ArrayList<>();
+            List<Message> expected = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                // Each id is sent twice in a row
+                DefaultMessage message = DefaultMessage.builder().id(String.valueOf(i / 2)).build();
+                message.headers().set("X-Keep", "true");
+                messages.add(message);
+                if (i % 2 == 0) {
+                    expected.add(message);
+                }
+            }
+            TestSubscriber<Message> obs = Flowable.fromIterable(messages).compose(messagesCaptor.getValue()).test();
+
+            obs.awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueSequence(expected);
+            assertThat(cut.metrics().getRequest().getFiltered()).isEqualTo(100);
+        }
+    }
+
+    @Nested
+    class MicroBatch {
+
+        @Captor
+        ArgumentCaptor<FlowableTransformer<Message, Message>> messagesCaptor;
+
+        @Test
+        void should_keep_message_order_when_evaluating_messages_by_batch() {
+            configuration.setEngine(FilterEngine.NATIVE);
+            configuration.setFilter("{#message.headers['X-Keep'][0] == 'true'}");
+            configuration.setMicroBatch(new MicroBatchConfiguration(true, 8, 5));
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessages(messagesCaptor.capture());
+
+            List<Message> messages = new ArrayList<>();
+            List<Message> expected = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                DefaultMessage message = DefaultMessage.builder().id(String.valueOf(i)).build();
+                message.headers().set("X-Keep", String.valueOf(i % 3 != 0));
+                messages.add(message);
+                if (i % 3 != 0) {
+                    expected.add(message);
+                }
+            }
+            TestSubscriber<Message> obs = Flowable.fromIterable(messages).compose(messagesCaptor.getValue()).test();
+
+            obs.awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueSequence(expected);
+            assertThat(cut.metrics().getRequest().getFiltered()).isEqualTo(34);
+        }
+
+        @Test
+        void should_set_up_template_engine_once_per_batch() {
+            TemplateContext templateContext = mock(TemplateContext.class);
+            configuration.setMicroBatch(new MicroBatchConfiguration(true, 10, 1000));
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.response().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(true);
+            when(templateEngine.getTemplateContext()).thenReturn(templateContext);
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response).onMessages(messagesCaptor.capture());
+
+            Flowable
+                .range(0, 25)
+                .<Message>map(i -> DefaultMessage.builder().id(String.valueOf(i)).build())
+                .compose(messagesCaptor.getValue())
+                .test()
+                .awaitDone(10, TimeUnit.SECONDS)
+                .assertComplete()
+                .assertValueCount(25);
+
+            verify(ctx, times(3)).getTemplateEngine(any());
+            verify(templateContext, times(22)).setVariable(eq("message"), any());
+        }
+
+        @Test
+        void should_ack_filtered_messages_and_handle_errors_when_evaluating_messages_by_batch() {
+            configuration.setMicroBatch(new MicroBatchConfiguration(true, 10, 5));
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.response().onMessages(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue(any(), eq(boolean.class))).thenReturn(true).thenThrow(new IllegalStateException()).thenReturn(false);
+            when(templateEngine.getTemplateContext()).thenReturn(mock(TemplateContext.class));
+            cut.onMessageResponse(ctx).test().assertComplete();
+            verify(response).onMessages(messagesCaptor.capture());
+
+            DefaultMessage kept = spy(DefaultMessage.builder().id("1").build());
+            DefaultMessage errored = spy(DefaultMessage.builder().id("2").build());
+            DefaultMessage filtered = spy(DefaultMessage.builder().id("3").build());
+            Flowable
+                .<Message>just(kept, errored, filtered)
+                .compose(messagesCaptor.getValue())
+                .test()
+                .awaitDone(10, TimeUnit.SECONDS)
+                .assertComplete()
+                .assertValues(kept);
+
+            verify(kept, never()).ack();
+            verify(errored).ack();
+            verify(filtered).ack();
+            assertThat(cut.metrics().getResponse().getErrored()).isEqualTo(1);
+            assertThat(cut.metrics().getResponse().getFiltered()).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    class EvaluationBudget {
+
+        @Test
+        void should_decide_messages_without_evaluation_once_filter_is_too_slow() {
+            configuration.setEvaluationBudget(new EvaluationBudgetConfiguration(true, 1, 2, 60_000, 60_000));
+            configuration.setFilterMessageOnFilteringError(false);
+            configuration.setFilter("{#filter}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#filter}", boolean.class))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(5);
+                    return false;
+                });
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            for (int i = 0; i < 4; i++) {
+                DefaultMessage message = DefaultMessage.builder().id(String.valueOf(i)).build();
+                messageCaptor.getValue().apply(message).test().assertValue(message);
+            }
+
+            verify(templateEngine, times(2)).getValue("{#filter}", boolean.class);
+            EvaluationBreaker breaker = cut.metrics().getBreaker();
+            assertThat(breaker.getState()).isEqualTo(EvaluationBreaker.State.OPEN);
+            assertThat(breaker.getOverBudget()).isEqualTo(2);
+            assertThat(breaker.getShortCircuited()).isEqualTo(2);
+            assertThat(breaker.getTrips()).isEqualTo(1);
+        }
+
+        @Test
+        void should_not_create_breaker_when_budget_is_disabled() {
+            configuration.setEvaluationBudget(new EvaluationBudgetConfiguration());
+            cut = new MessageFilteringPolicy(configuration);
+
+            assertThat(cut.metrics().getBreaker()).isNull();
+        }
+    }
+
+    @Nested
+    class Memoization {
+
+        @Test
+        void should_reuse_result_of_messages_sharing_the_parts_read_by_the_filter() {
+            configuration.setMemoization(new MemoizationConfiguration(true, 100));
+            configuration.setFilter("{#jsonPath(#message.content, '$.type') == 'order'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#jsonPath(#message.content, '$.type') == 'order'}", boolean.class)).thenReturn(true, false);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            for (int i = 0; i < 3; i++) {
+                DefaultMessage message = DefaultMessage
+                    .builder()
+                    .id(String.valueOf(i))
+                    .content(Buffer.buffer("{\"type\":\"order\"}"))
+                    .build();
+                messageCaptor.getValue().apply(message).test().assertValue(message);
+            }
+            DefaultMessage invoice = DefaultMessage.builder().id("invoice").content(Buffer.buffer("{\"type\":\"invoice\"}")).build();
+            messageCaptor.getValue().apply(invoice).test().assertNoValues();
+
+            verify(templateEngine, times(2)).getValue("{#jsonPath(#message.content, '$.type') == 'order'}", boolean.class);
+            assertThat(cut.metrics().getMemoization().getHits()).isEqualTo(2);
+            assertThat(cut.metrics().getMemoization().getHitRate()).isEqualTo(0.5);
+        }
+
+        @Test
+        void should_not_memoize_filter_reading_the_context() {
+            configuration.setMemoization(new MemoizationConfiguration(true, 100));
+            configuration.setFilter("{#context.attributes['foo'] == 'bar'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#context.attributes['foo'] == 'bar'}", boolean.class)).thenReturn(true);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            for (int i = 0; i < 3; i++) {
+                DefaultMessage message = DefaultMessage.builder().id("id").build();
+                messageCaptor.getValue().apply(message).test().assertValue(message);
+            }
+
+            verify(templateEngine, times(3)).getValue("{#context.attributes['foo'] == 'bar'}", boolean.class);
+            assertThat(cut.metrics().getMemoization().getHits()).isZero();
+        }
+    }
+
+    @Nested
+    class ContentMatch {
+
+        @Test
+        void should_filter_and_ack_messages_whose_content_does_not_contain_a_keyword() {
+            configuration.setContentMatch(new ContentMatchConfiguration(true, List.of("urgent"), null, false, ContentMatchMode.ALLOW, 50));
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage urgent = DefaultMessage.builder().id("1").content(Buffer.buffer("an urgent message")).build();
+            DefaultMessage other = spy(DefaultMessage.builder().id("2").content(Buffer.buffer("a message")).build());
+            messageCaptor.getValue().apply(urgent).test().assertValue(urgent);
+            messageCaptor.getValue().apply(other).test().assertNoValues();
+
+            verify(other).ack();
+            verify(ctx, never()).getTemplateEngine(any());
+        }
+
+        @Test
+        void should_combine_content_match_with_the_filter() {
+            configuration.setContentMatch(new ContentMatchConfiguration(true, null, List.of("error|warn"), false, ContentMatchMode.DENY, 50));
+            configuration.setFilter("{#filter}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#filter}", boolean.class)).thenReturn(true);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage info = DefaultMessage.builder().id("1").content(Buffer.buffer("info")).build();
+            DefaultMessage error = DefaultMessage.builder().id("2").content(Buffer.buffer("an error")).build();
+            messageCaptor.getValue().apply(info).test().assertValue(info);
+            messageCaptor.getValue().apply(error).test().assertNoValues();
+
+            verify(templateEngine).getValue("{#filter}", boolean.class);
+        }
+    }
+
+    @Nested
+    class MessageOnlyFilter {
+
+        @Test
+        void should_evaluate_filter_only_reading_headers_and_attributes_without_template_engine() {
+            configuration.setFilter("{#message.headers['X-Type'][0] == 'order' && #message.attributes['count'] > 3}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            Buffer content = mock(Buffer.class);
+            DefaultMessage order = DefaultMessage.builder().id("1").content(content).build();
+            order.headers().set("X-Type", "order");
+            order.attribute("count", 5);
+            DefaultMessage invoice = DefaultMessage.builder().id("2").content(content).build();
+            invoice.headers().set("X-Type", "invoice");
+            invoice.attribute("count", 5);
+            messageCaptor.getValue().apply(order).test().assertValue(order);
+            messageCaptor.getValue().apply(invoice).test().assertNoValues();
+
+            verify(ctx, never()).getTemplateEngine(any());
+            verifyNoInteractions(content);
+        }
+
+        @Test
+        void should_apply_filterMessageOnFilteringError_when_message_only_filter_fails() {
+            configuration.setFilter("{#message.headers['X-Missing'][0] == 'order'}");
+            configuration.setFilterMessageOnFilteringError(false);
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").build();
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+            assertThat(cut.metrics().getRequest().getErrored()).isEqualTo(1);
+        }
+
+        @Test
+        void should_evaluate_filter_reading_content_with_template_engine() {
+            configuration.setFilter("{#message.content == 'content'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#message.content == 'content'}", boolean.class)).thenReturn(true);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").content(Buffer.buffer("content")).build();
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+            verify(ctx).getTemplateEngine(message);
+        }
+
+        @Test
+        void should_evaluate_filter_calling_jsonPath_with_template_engine() {
+            configuration.setFilter("{#jsonPath(#message.headers['X-Payload'][0], '$.type') == 'order'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            when(templateEngine.getValue("{#jsonPath(#message.headers['X-Payload'][0], '$.type') == 'order'}", boolean.class)).thenReturn(true);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            DefaultMessage message = DefaultMessage.builder().id("id").build();
+            message.headers().set("X-Payload", "{\"type\":\"order\"}");
+            messageCaptor.getValue().apply(message).test().assertValue(message);
+            verify(ctx).getTemplateEngine(message);
+            assertThat(cut.metrics().getRequest().getErrored()).isZero();
+        }
+    }
+
+    @Nested
+    class BinaryContent {
+
+        private static final String AVRO_SCHEMA =
+            "{\"type\":\"record\",\"name\":\"Event\",\"fields\":[" +
+            "{\"name\":\"type\",\"type\":\"string\"},{\"name\":\"amount\",\"type\":\"int\"}]}";
+
+        @TempDir
+        Path directory;
+
+        @Test
+        void should_filter_avro_messages_on_record_fields_without_template_engine() {
+            configuration.setBinaryContent(new BinaryContentConfiguration(true, BinaryFormat.AVRO, AVRO_SCHEMA, null, null, 0));
+            configuration.setFilter("{#jsonPath(#message.content, '$.type') == 'order' && #jsonPath(#message.content, '$.amount') > 10}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            // Avro strings and ints are zig-zag encoded: 10 is a length of 5, 40 an amount of 20 and 2 an amount of 1
+            byte[] orderContent = { 10, 'o', 'r', 'd', 'e', 'r', 40 };
+            byte[] smallContent = { 10, 'o', 'r', 'd', 'e', 'r', 2 };
+            DefaultMessage order = DefaultMessage.builder().id("1").content(Buffer.buffer(orderContent)).build();
+            DefaultMessage small = DefaultMessage.builder().id("2").content(Buffer.buffer(smallContent)).build();
+            messageCaptor.getValue().apply(order).test().assertValue(order);
+            messageCaptor.getValue().apply(small).test().assertComplete().assertNoValues();
+
+            verify(ctx, never()).getTemplateEngine(any());
+        }
+
+        @Test
+        void should_filter_protobuf_messages_with_schema_file() throws IOException {
+            Path schema = Files.writeString(directory.resolve("event.proto"), "syntax = \"proto3\";\nmessage Event { string type = 1; }\n");
+            configuration.setBinaryContent(
+                new BinaryContentConfiguration(true, BinaryFormat.PROTOBUF, null, schema.toString(), "Event", 0)
+            );
+            configuration.setFilter("{#jsonPath(#message.content, '$.type') == 'order'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+            verify(request).onMessage(messageCaptor.capture());
+
+            // Field 1 with the length delimited wire type, followed by the length of the string
+            byte[] orderContent = { 10, 5, 'o', 'r', 'd', 'e', 'r' };
+            byte[] otherContent = { 10, 3, 'f', 'o', 'o' };
+            DefaultMessage order = DefaultMessage.builder().id("1").content(Buffer.buffer(orderContent)).build();
+            DefaultMessage other = spy(DefaultMessage.builder().id("2").content(Buffer.buffer(otherContent)).build());
+            messageCaptor.getValue().apply(order).test().assertValue(order);
+            messageCaptor.getValue().apply(other).test().assertComplete().assertNoValues();
+
+            verify(other).ack();
+        }
+
+        @Test
+        void should_consider_filter_invalid_when_path_is_not_defined_by_schema() {
+            configuration.setBinaryContent(new BinaryContentConfiguration(true, BinaryFormat.AVRO, AVRO_SCHEMA, null, null, 0));
+            configuration.setFilter("{#jsonPath(#message.content, '$.missing') == 'order'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+
+            assertThat(cut.metrics().getHealth().getStatus()).isEqualTo(FilterHealth.Status.DROP_ALL);
+        }
+
+        @Test
+        void should_consider_filter_invalid_when_it_reads_binary_content_with_unsupported_shape() {
+            configuration.setBinaryContent(new BinaryContentConfiguration(true, BinaryFormat.AVRO, AVRO_SCHEMA, null, null, 0));
+            configuration.setFilter("{#message.content matches 'order.*'}");
+            cut = new MessageFilteringPolicy(configuration);
+            when(ctx.request().onMessage(any())).thenReturn(Completable.complete());
+            when(templateEngine.getValue(any(), eq(Object.class))).thenReturn(null);
+            cut.onMessageRequest(ctx).test().assertComplete();
+
+            assertThat(cut.metrics().getHealth().getStatus()).isEqualTo(FilterHealth.Status.DROP_ALL);
+        }
+
+        @Test
+        void should_fail_on_invalid_schema() {
+            configuration.setBinaryContent(new BinaryContentConfiguration(true, BinaryFormat.AVRO, "{\"type\":\"record\"}", null, null, 0));
+
+            assertThatThrownBy(() -> new MessageFilteringPolicy(configuration)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class SharedFilters {
+
+        @Test
+        void should_share_compiled_filter_between_policy_instances() {
+            configuration.setFilter("{#message.headers['X-Shared'] != null}");
+            MessageFilteringPolicy other = new MessageFilteringPolicy(configuration);
+
+            assertThat(other.compiledFilters().get("{#message.headers['X-Shared'] != null}"))
+                .isSameAs(cut.compiledFilters().get("{#message.headers['X-Shared'] != null}"));
+            assertThat(cut.metrics().getSharedCompiledFilters()).isPositive();
+        }
+
+        @Test
+        void should_not_share_compiled_filter_between_engines() {
+            configuration.setEngine(FilterEngine.NATIVE);
+            MessageFilteringPolicy nativePolicy = new MessageFilteringPolicy(configuration);
+
+            CompiledFilter nativeFilter = nativePolicy.compiledFilters().get("{#message.headers['X-Engine'] != null}");
+            CompiledFilter elFilter = cut.compiledFilters().get("{#message.headers['X-Engine'] != null}");
+
+            assertThat(nativeFilter).isNotSameAs(elFilter);
+            assertThat(nativeFilter.getPredicate()).isNotNull();
+            assertThat(elFilter.getPredicate()).isNull();
+        }
+    }
 }
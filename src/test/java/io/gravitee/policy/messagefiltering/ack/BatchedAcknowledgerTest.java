@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.ack;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.gravitee.gateway.reactive.api.message.Message;
+import io.gravitee.policy.messagefiltering.metrics.PhaseMetrics;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class BatchedAcknowledgerTest {
+
+    private TestScheduler scheduler;
+    private PhaseMetrics metrics;
+
+    @BeforeEach
+    void init() {
+        scheduler = new TestScheduler();
+        metrics = new PhaseMetrics();
+    }
+
+    @Test
+    void should_ack_messages_in_order_when_batch_is_full() {
+        BatchedAcknowledger cut = new BatchedAcknowledger(2, 1000, metrics, scheduler);
+        Message first = mock(Message.class);
+        Message second = mock(Message.class);
+
+        cut.add(first);
+        verify(first, never()).ack();
+        cut.add(second);
+
+        InOrder inOrder = inOrder(first, second);
+        inOrder.verify(first).ack();
+        inOrder.verify(second).ack();
+        assertThat(cut.pending()).isZero();
+        assertThat(metrics.getAcked()).isEqualTo(2);
+    }
+
+    @Test
+    void should_ack_messages_when_interval_is_elapsed() {
+        BatchedAcknowledger cut = new BatchedAcknowledger(10, 1000, metrics, scheduler);
+        Message message = mock(Message.class);
+
+        cut.add(message);
+        scheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+        verify(message, never()).ack();
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+        verify(message).ack();
+        assertThat(cut.pending()).isZero();
+    }
+
+    @Test
+    void should_restart_interval_after_a_full_batch() {
+        BatchedAcknowledger cut = new BatchedAcknowledger(2, 1000, metrics, scheduler);
+        cut.add(mock(Message.class));
+        scheduler.advanceTimeBy(800, TimeUnit.MILLISECONDS);
+        cut.add(mock(Message.class));
+        Message message = mock(Message.class);
+        cut.add(message);
+
+        scheduler.advanceTimeBy(800, TimeUnit.MILLISECONDS);
+        verify(message, never()).ack();
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        verify(message).ack();
+    }
+
+    @Test
+    void should_only_ack_full_batches_when_interval_is_zero() {
+        BatchedAcknowledger cut = new BatchedAcknowledger(2, 0, metrics, scheduler);
+        Message message = mock(Message.class);
+
+        cut.add(message);
+        scheduler.advanceTimeBy(1, TimeUnit.HOURS);
+
+        verify(message, never()).ack();
+        assertThat(cut.pending()).isEqualTo(1);
+    }
+
+    @Test
+    void should_ack_pending_messages_on_flush() {
+        BatchedAcknowledger cut = new BatchedAcknowledger(10, 1000, metrics, scheduler);
+        Message message = mock(Message.class);
+
+        cut.add(message);
+        cut.flush();
+        scheduler.advanceTimeBy(1, TimeUnit.HOURS);
+
+        verify(message).ack();
+        assertThat(metrics.getAcked()).isEqualTo(1);
+    }
+}
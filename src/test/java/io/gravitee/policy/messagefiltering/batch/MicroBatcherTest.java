@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class MicroBatcherTest {
+
+    private TestScheduler scheduler;
+
+    @BeforeEach
+    void init() {
+        scheduler = new TestScheduler();
+    }
+
+    @Test
+    void should_emit_full_batches_and_last_partial_batch_on_completion() {
+        new MicroBatcher<>(Flowable.range(1, 5), 2, 1000, scheduler)
+            .test()
+            .assertValues(List.of(1, 2), List.of(3, 4), List.of(5))
+            .assertComplete();
+    }
+
+    @Test
+    void should_emit_partial_batch_once_its_oldest_item_waited_for_the_interval() {
+        PublishProcessor<Integer> source = PublishProcessor.create();
+        TestSubscriber<List<Integer>> obs = new MicroBatcher<>(source, 10, 5, scheduler).test();
+
+        source.onNext(1);
+        scheduler.advanceTimeBy(3, TimeUnit.MILLISECONDS);
+        source.onNext(2);
+        obs.assertNoValues();
+        scheduler.advanceTimeBy(2, TimeUnit.MILLISECONDS);
+        obs.assertValues(List.of(1, 2));
+
+        source.onNext(3);
+        scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+        obs.assertValues(List.of(1, 2), List.of(3)).assertNotComplete();
+    }
+
+    @Test
+    void should_request_items_from_source_as_batches_are_requested() {
+        AtomicLong requested = new AtomicLong();
+        TestSubscriber<List<Integer>> obs = new MicroBatcher<>(Flowable.range(1, 100).doOnRequest(requested::addAndGet), 10, 5, scheduler).test(
+            0
+        );
+
+        assertThat(requested.get()).isZero();
+        obs.request(2);
+        assertThat(requested.get()).isEqualTo(20L);
+        obs.assertValueCount(2).assertNotComplete();
+    }
+
+    @Test
+    void should_keep_filling_expired_batch_until_a_batch_is_requested() {
+        PublishProcessor<Integer> source = PublishProcessor.create();
+        TestSubscriber<List<Integer>> obs = new MicroBatcher<>(source, 3, 5, scheduler).test(1);
+
+        source.onNext(1);
+        scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+        obs.assertValues(List.of(1));
+
+        source.onNext(2);
+        scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+        source.onNext(3);
+        obs.assertValues(List.of(1));
+
+        obs.request(1);
+        obs.assertValues(List.of(1), List.of(2, 3));
+    }
+
+    @Test
+    void should_propagate_error_of_source() {
+        PublishProcessor<Integer> source = PublishProcessor.create();
+        TestSubscriber<List<Integer>> obs = new MicroBatcher<>(source, 10, 5, scheduler).test();
+
+        source.onNext(1);
+        source.onError(new IllegalStateException());
+
+        obs.assertError(IllegalStateException.class).assertNoValues();
+    }
+
+    @Test
+    void should_stop_timer_when_cancelled() {
+        PublishProcessor<Integer> source = PublishProcessor.create();
+        TestSubscriber<List<Integer>> obs = new MicroBatcher<>(source, 10, 5, scheduler).test();
+
+        source.onNext(1);
+        obs.cancel();
+        scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+
+        obs.assertNoValues();
+        assertThat(source.hasSubscribers()).isFalse();
+    }
+
+    @Test
+    void should_reject_interval_which_is_not_positive() {
+        assertThatThrownBy(() -> new MicroBatcher<>(Flowable.just(1), 10, 0, scheduler)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.binary;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.policy.messagefiltering.json.JsonFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class AvroSchemaTest {
+
+    private static final String SCHEMA =
+        "{\"type\":\"record\",\"name\":\"Order\",\"namespace\":\"shop\",\"fields\":[" +
+        "{\"name\":\"id\",\"type\":\"long\"}," +
+        "{\"name\":\"note\",\"type\":[\"null\",\"string\"]}," +
+        "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}," +
+        "{\"name\":\"quantities\",\"type\":{\"type\":\"map\",\"values\":\"int\"}}," +
+        "{\"name\":\"status\",\"type\":{\"type\":\"enum\",\"name\":\"Status\",\"symbols\":[\"NEW\",\"PAID\"]}}," +
+        "{\"name\":\"customer\",\"type\":{\"type\":\"record\",\"name\":\"Customer\",\"fields\":[" +
+        "{\"name\":\"name\",\"type\":\"string\"},{\"name\":\"vip\",\"type\":\"boolean\"},{\"name\":\"score\",\"type\":\"double\"}]}}," +
+        "{\"name\":\"referrer\",\"type\":[\"null\",\"Customer\"]}" +
+        "]}";
+
+    private final AvroSchema cut = AvroSchema.parse(SCHEMA);
+
+    @Test
+    void should_extract_all_paths_in_one_pass() throws Exception {
+        Object[] values = extract(
+            order(),
+            "$.id",
+            "$.note",
+            "$.tags[2]",
+            "$.quantities.apple",
+            "$.status",
+            "$.customer.name",
+            "$.customer.vip",
+            "$.customer.score"
+        );
+
+        assertThat(values).containsExactly(42L, "fragile", "c", 7, "PAID", "Ada", true, 1.5);
+    }
+
+    @Test
+    void should_extract_containers_as_marker() throws Exception {
+        assertThat(extract(order(), "$.customer", "$.tags", "$.quantities"))
+            .containsExactly(JsonFieldExtractor.CONTAINER, JsonFieldExtractor.CONTAINER, JsonFieldExtractor.CONTAINER);
+    }
+
+    @Test
+    void should_extract_null_branch_of_union_and_missing_map_key_as_null() throws Exception {
+        assertThat(extract(order(), "$.referrer", "$.quantities.pear")).containsExactly(null, null);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "$.referrer.name", "$.tags[5]" })
+    void should_not_find_path_when_intermediate_element_is_missing(final String path) throws Exception {
+        assertThat(extract(order(), path)).containsExactly(JsonFieldExtractor.NOT_FOUND);
+    }
+
+    @Test
+    void should_skip_leading_bytes() throws Exception {
+        byte[] order = order();
+        byte[] framed = new byte[order.length + 5];
+        System.arraycopy(order, 0, framed, 5, order.length);
+
+        assertThat(cut.extractor(paths("$.customer.name"), 5).extract(Buffer.buffer(framed))).containsExactly("Ada");
+    }
+
+    @Test
+    void should_stop_reading_once_all_paths_are_found() throws Exception {
+        byte[] order = order();
+
+        assertThat(extract(Arrays.copyOf(order, 3), "$.id")).containsExactly(42L);
+    }
+
+    @Test
+    void should_fail_on_truncated_content_before_paths_are_found() {
+        byte[] order = order();
+
+        assertThatThrownBy(() -> extract(Arrays.copyOf(order, 3), "$.customer.name")).isInstanceOf(EOFException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "$.missing", "$.id.value", "$.tags.first", "$.customer.age" })
+    void should_reject_path_not_defined_by_schema(final String path) {
+        assertThatThrownBy(() -> cut.extractor(paths(path), 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "not json", "{\"type\":\"record\",\"name\":\"A\"}", "{\"type\":\"Unknown\"}", "{\"type\":\"enum\"}" })
+    void should_reject_invalid_schema(final String schema) {
+        assertThatThrownBy(() -> AvroSchema.parse(schema)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Object[] extract(final byte[] content, final String... paths) throws Exception {
+        return cut.extractor(paths(paths), 0).extract(Buffer.buffer(content));
+    }
+
+    private static List<JsonFieldPath> paths(final String... paths) {
+        return Arrays.stream(paths).map(JsonFieldPath::parse).collect(Collectors.toList());
+    }
+
+    private static byte[] order() {
+        AvroWriter writer = new AvroWriter();
+        writer.writeLong(42).writeLong(1).writeString("fragile");
+        // First block of the array written with its size in bytes, so that it can be skipped at once
+        byte[] block = new AvroWriter().writeString("a").writeString("b").toByteArray();
+        writer.writeLong(-2).writeLong(block.length).writeBytes(block).writeLong(1).writeString("c").writeLong(0);
+        writer.writeLong(1).writeString("apple").writeLong(7).writeLong(0);
+        writer.writeLong(1);
+        writer.writeString("Ada").writeBytes(new byte[] { 1 }).writeBytes(new byte[] { 0, 0, 0, 0, 0, 0, (byte) 0xf8, 0x3f });
+        writer.writeLong(0);
+        return writer.toByteArray();
+    }
+
+    private static class AvroWriter {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private AvroWriter writeLong(final long value) {
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7fL) != 0) {
+                bytes.write((int) ((zigZag & 0x7f) | 0x80));
+                zigZag >>>= 7;
+            }
+            bytes.write((int) zigZag);
+            return this;
+        }
+
+        private AvroWriter writeString(final String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            return writeLong(encoded.length).writeBytes(encoded);
+        }
+
+        private AvroWriter writeBytes(final byte[] value) {
+            bytes.write(value, 0, value.length);
+            return this;
+        }
+
+        private byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
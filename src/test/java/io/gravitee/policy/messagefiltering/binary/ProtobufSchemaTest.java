@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.binary;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.policy.messagefiltering.json.JsonFieldExtractor;
+import io.gravitee.policy.messagefiltering.json.JsonFieldPath;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ProtobufSchemaTest {
+
+    private static final String SCHEMA = String.join(
+        "\n",
+        "syntax = \"proto3\";",
+        "package shop.v1;",
+        "import \"google/protobuf/timestamp.proto\";",
+        "option java_package = \"io.shop\";",
+        "",
+        "// An order",
+        "message Order {",
+        "  int64 id = 1;",
+        "  string note = 2;",
+        "  repeated int32 quantities = 3;",
+        "  Customer customer = 4;",
+        "  Status status = 5;",
+        "  map<string, string> labels = 6;",
+        "  repeated Item items = 7;",
+        "  optional string coupon = 8;",
+        "  oneof payment { string card = 9; string iban = 10; }",
+        "  sint32 delta = 11;",
+        "  reserved 12, 13;",
+        "",
+        "  message Item {",
+        "    string sku = 1;",
+        "    double price = 2;",
+        "  }",
+        "}",
+        "",
+        "message Customer {",
+        "  string name = 1;",
+        "  bool vip = 2;",
+        "}",
+        "",
+        "enum Status {",
+        "  /* Not set */",
+        "  UNKNOWN = 0;",
+        "  PAID = 1 [deprecated = true];",
+        "}"
+    );
+
+    private final ProtobufSchema cut = ProtobufSchema.parse(SCHEMA, null);
+
+    @Test
+    void should_extract_all_paths_in_one_pass() throws Exception {
+        Object[] values = extract(order(), "$.id", "$.quantities[1]", "$.customer.name", "$.status", "$.items[0].sku", "$.delta");
+
+        assertThat(values).containsExactly(42L, 2, "Ada", "PAID", "A-1", -2);
+    }
+
+    @Test
+    void should_extract_packed_and_unpacked_elements_of_repeated_field() throws Exception {
+        assertThat(extract(order(), "$.quantities[0]", "$.quantities[3]", "$.quantities[4]"))
+            .containsExactly(1, 4, JsonFieldExtractor.NOT_FOUND);
+    }
+
+    @Test
+    void should_merge_embedded_message_occurrences() throws Exception {
+        assertThat(extract(order(), "$.customer.name", "$.customer.vip")).containsExactly("Ada", true);
+    }
+
+    @Test
+    void should_extract_missing_field_as_default_value_or_null_when_field_has_presence() throws Exception {
+        Object[] values = extract(order(), "$.note", "$.items[1].sku", "$.items[1].price", "$.coupon", "$.card", "$.labels");
+
+        assertThat(values).containsExactly("", "", 0.0, null, null, JsonFieldExtractor.CONTAINER);
+    }
+
+    @Test
+    void should_extract_missing_message_as_null() throws Exception {
+        assertThat(extract(new byte[0], "$.customer", "$.customer.name", "$.status", "$.items"))
+            .containsExactly(null, JsonFieldExtractor.NOT_FOUND, "UNKNOWN", JsonFieldExtractor.CONTAINER);
+    }
+
+    @Test
+    void should_read_given_message_type() throws Exception {
+        ProtobufSchema item = ProtobufSchema.parse(SCHEMA, "shop.v1.Order.Item");
+
+        assertThat(item.extractor(paths("$.sku"), 0).extract(Buffer.buffer(item()))).containsExactly("A-1");
+    }
+
+    @Test
+    void should_fail_on_truncated_content() {
+        assertThatThrownBy(() -> extract(new byte[] { 8 }, "$.id")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void should_fail_on_unexpected_wire_type() {
+        assertThatThrownBy(() -> extract(new ProtobufWriter().writeString(1, "42").toByteArray(), "$.id")).isInstanceOf(IOException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "$.missing", "$.id.value", "$.labels.key", "$.quantities.first", "$.customer.age" })
+    void should_reject_path_not_defined_by_schema(final String path) {
+        assertThatThrownBy(() -> cut.extractor(paths(path), 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = { "message A { Missing m = 1; }", "message A { string a = 1; string b = 1; }", "message A { string a = ; }", "" }
+    )
+    void should_reject_invalid_schema(final String schema) {
+        assertThatThrownBy(() -> ProtobufSchema.parse(schema, null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_reject_unknown_message_type() {
+        assertThatThrownBy(() -> ProtobufSchema.parse(SCHEMA, "Invoice")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Object[] extract(final byte[] content, final String... paths) throws Exception {
+        return cut.extractor(paths(paths), 0).extract(Buffer.buffer(content));
+    }
+
+    private static List<JsonFieldPath> paths(final String... paths) {
+        return Arrays.stream(paths).map(JsonFieldPath::parse).collect(Collectors.toList());
+    }
+
+    private static byte[] item() {
+        return new ProtobufWriter().writeString(1, "A-1").toByteArray();
+    }
+
+    private static byte[] order() {
+        return new ProtobufWriter()
+            .writeVarint(1, 42)
+            // Packed elements followed by an unpacked one
+            .writeBytes(3, new byte[] { 1, 2, 3 })
+            .writeVarint(3, 4)
+            .writeBytes(4, new ProtobufWriter().writeString(1, "Ada").toByteArray())
+            .writeBytes(4, new ProtobufWriter().writeVarint(2, 1).toByteArray())
+            .writeVarint(5, 1)
+            .writeBytes(7, item())
+            .writeBytes(7, new byte[0])
+            .writeVarint(11, 3)
+            // Unknown field
+            .writeFixed32(99)
+            .toByteArray();
+    }
+
+    private static class ProtobufWriter {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private ProtobufWriter writeVarint(final int field, final long value) {
+            varint(field << 3);
+            varint(value);
+            return this;
+        }
+
+        private ProtobufWriter writeFixed32(final int field) {
+            varint(field << 3 | 5);
+            bytes.write(new byte[4], 0, 4);
+            return this;
+        }
+
+        private ProtobufWriter writeString(final int field, final String value) {
+            return writeBytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private ProtobufWriter writeBytes(final int field, final byte[] value) {
+            varint(field << 3 | 2);
+            varint(value.length);
+            bytes.write(value, 0, value.length);
+            return this;
+        }
+
+        private void varint(final long value) {
+            long remaining = value;
+            while ((remaining & ~0x7fL) != 0) {
+                bytes.write((int) ((remaining & 0x7f) | 0x80));
+                remaining >>>= 7;
+            }
+            bytes.write((int) remaining);
+        }
+
+        private byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.budget;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.policy.messagefiltering.configuration.EvaluationBudgetConfiguration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class EvaluationBreakerTest {
+
+    private static final long IN_BUDGET = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long OVER_BUDGET = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final EvaluationBreaker cut = new EvaluationBreaker(
+        new EvaluationBudgetConfiguration(true, 10, 3, 1000, 5000),
+        "{#filter}",
+        clock::get
+    );
+
+    @Test
+    void should_report_evaluation_over_budget() {
+        assertThat(cut.record(IN_BUDGET)).isFalse();
+        assertThat(cut.record(OVER_BUDGET)).isTrue();
+
+        assertThat(cut.getOverBudget()).isEqualTo(1);
+        assertThat(cut.getState()).isEqualTo(EvaluationBreaker.State.CLOSED);
+    }
+
+    @Test
+    void should_open_after_violations_within_window() {
+        violate(3, 100);
+
+        assertThat(cut.getState()).isEqualTo(EvaluationBreaker.State.OPEN);
+        assertThat(cut.getTrips()).isEqualTo(1);
+        assertThat(cut.allow()).isFalse();
+        assertThat(cut.getShortCircuited()).isEqualTo(1);
+    }
+
+    @Test
+    void should_stay_closed_when_violations_are_spread_over_more_than_the_window() {
+        violate(10, 600);
+
+        assertThat(cut.getState()).isEqualTo(EvaluationBreaker.State.CLOSED);
+        assertThat(cut.getOverBudget()).isEqualTo(10);
+        assertThat(cut.allow()).isTrue();
+    }
+
+    @Test
+    void should_allow_a_single_probe_after_cool_down_and_close_when_it_fits_in_budget() {
+        violate(3, 100);
+        assertThat(cut.allow()).isFalse();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+        assertThat(cut.allow()).isTrue();
+        assertThat(cut.allow()).isFalse();
+        assertThat(cut.record(IN_BUDGET)).isFalse();
+
+        assertThat(cut.getState()).isEqualTo(EvaluationBreaker.State.CLOSED);
+        assertThat(cut.allow()).isTrue();
+    }
+
+    @Test
+    void should_open_again_when_probe_is_over_budget() {
+        violate(3, 100);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+        assertThat(cut.allow()).isTrue();
+
+        assertThat(cut.record(OVER_BUDGET)).isTrue();
+
+        assertThat(cut.getState()).isEqualTo(EvaluationBreaker.State.OPEN);
+        assertThat(cut.getTrips()).isEqualTo(2);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(4999));
+        assertThat(cut.allow()).isFalse();
+    }
+
+    private void violate(final int times, final long intervalMs) {
+        for (int i = 0; i < times; i++) {
+            cut.record(OVER_BUDGET);
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(intervalMs));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SchemaFormTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private JsonNode schema;
+
+    @BeforeEach
+    void init() throws IOException {
+        try (InputStream input = getClass().getResourceAsStream("/schemas/schema-form.json")) {
+            schema = MAPPER.readTree(input);
+        }
+    }
+
+    @Test
+    void should_accept_configuration_with_filter() throws IOException {
+        assertThat(isSatisfied("{\"filter\":\"{#message.id == 'id'}\"}")).isTrue();
+        assertThat(isSatisfied("{\"filter\":\"{#message.id == 'id'}\",\"conditions\":[]}")).isTrue();
+    }
+
+    @Test
+    void should_accept_configuration_with_conditions_only() throws IOException {
+        assertThat(isSatisfied("{\"conditions\":[\"{#message.id == 'id'}\"]}")).isTrue();
+    }
+
+    @Test
+    void should_reject_configuration_without_filter_nor_condition() throws IOException {
+        assertThat(isSatisfied("{}")).isFalse();
+        assertThat(isSatisfied("{\"conditions\":[]}")).isFalse();
+        assertThat(isSatisfied("{\"ackFilteredMessage\":true}")).isFalse();
+    }
+
+    /**
+     * Check the configuration against the <code>anyOf</code> requirements of the schema, which only use <code>required</code> and
+     * <code>minItems</code>.
+     */
+    private boolean isSatisfied(final String configuration) throws IOException {
+        JsonNode node = MAPPER.readTree(configuration);
+        for (JsonNode alternative : schema.get("anyOf")) {
+            if (isSatisfied(alternative, node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSatisfied(final JsonNode alternative, final JsonNode configuration) {
+        for (JsonNode required : alternative.path("required")) {
+            if (!configuration.has(required.asText())) {
+                return false;
+            }
+        }
+        Iterator<Map.Entry<String, JsonNode>> properties = alternative.path("properties").fields();
+        while (properties.hasNext()) {
+            Map.Entry<String, JsonNode> property = properties.next();
+            JsonNode minItems = property.getValue().get("minItems");
+            JsonNode value = configuration.get(property.getKey());
+            if (minItems != null && value != null && value.size() < minItems.asInt()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
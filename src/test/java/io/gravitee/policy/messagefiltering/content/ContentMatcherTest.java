@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.content;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.gateway.reactive.api.message.DefaultMessage;
+import io.gravitee.policy.messagefiltering.configuration.ContentMatchConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.ContentMatchMode;
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ContentMatcherTest {
+
+    @Test
+    void should_keep_messages_containing_a_keyword_or_matching_a_pattern() {
+        ContentMatcher cut = new ContentMatcher(
+            new ContentMatchConfiguration(true, List.of("urgent", "critical"), List.of("\\d{3}-\\d{4}"), false, ContentMatchMode.ALLOW, 50)
+        );
+
+        assertThat(cut.evaluate(null, message("a critical issue"))).isTrue();
+        assertThat(cut.evaluate(null, message("call 555-1234"))).isTrue();
+        assertThat(cut.evaluate(null, message("nothing to see"))).isFalse();
+        assertThat(cut.evaluate(null, DefaultMessage.builder().id("id").build())).isFalse();
+    }
+
+    @Test
+    void should_filter_messages_matching_in_deny_mode() {
+        ContentMatcher cut = new ContentMatcher(new ContentMatchConfiguration(true, null, List.of("^DEBUG"), true, ContentMatchMode.DENY, 50));
+
+        assertThat(cut.evaluate(null, message("debug: details"))).isFalse();
+        assertThat(cut.evaluate(null, message("info: debug details"))).isTrue();
+    }
+
+    @Test
+    void should_match_non_ascii_literal_patterns() {
+        ContentMatcher cut = new ContentMatcher(
+            new ContentMatchConfiguration(true, null, List.of("café (noir|crème)"), false, ContentMatchMode.ALLOW, 50)
+        );
+
+        assertThat(cut.evaluate(null, message("un café crème"))).isTrue();
+        assertThat(cut.evaluate(null, message("un café au lait"))).isFalse();
+    }
+
+    @Test
+    void should_fail_when_matching_a_pattern_takes_too_long() {
+        ContentMatcher cut = new ContentMatcher(new ContentMatchConfiguration(true, null, List.of("(.*a){12}$"), false, ContentMatchMode.ALLOW, 20));
+
+        assertThatThrownBy(() -> cut.evaluate(null, message("a".repeat(26) + "!"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static DefaultMessage message(final String content) {
+        return DefaultMessage.builder().id("id").content(Buffer.buffer(content)).build();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.content;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class KeywordAutomatonTest {
+
+    @ParameterizedTest
+    @CsvSource(
+        value = {
+            "ushers,true",
+            "hers,true",
+            "ahishe,true",
+            "shh,false",
+            "h e r s,false",
+            "'',false",
+        }
+    )
+    void should_find_overlapping_keywords(final String content, final boolean expected) {
+        KeywordAutomaton cut = KeywordAutomaton.compile(List.of("he", "she", "his", "hers"), false);
+
+        assertThat(cut.find(heap(content))).isEqualTo(expected);
+        assertThat(cut.find(direct(content))).isEqualTo(expected);
+    }
+
+    @Test
+    void should_find_keywords_ignoring_case() {
+        KeywordAutomaton cut = KeywordAutomaton.compile(List.of("Error"), true);
+
+        assertThat(cut.find(heap("an ERROR occurred"))).isTrue();
+        assertThat(cut.find(heap("an eRRoR occurred"))).isTrue();
+        assertThat(KeywordAutomaton.compile(List.of("Error"), false).find(heap("an ERROR occurred"))).isFalse();
+    }
+
+    @Test
+    void should_find_non_ascii_keywords_in_utf8_content() {
+        KeywordAutomaton cut = KeywordAutomaton.compile(List.of("café"), false);
+
+        assertThat(cut.find(heap("un café noir"))).isTrue();
+        assertThat(cut.find(heap("un cafe noir"))).isFalse();
+    }
+
+    @Test
+    void should_only_search_remaining_bytes() {
+        KeywordAutomaton cut = KeywordAutomaton.compile(List.of("key"), false);
+        ByteBuffer bytes = heap("key and more");
+        bytes.position(3);
+
+        assertThat(cut.find(bytes)).isFalse();
+        assertThat(bytes.position()).isEqualTo(3);
+    }
+
+    @Test
+    void should_not_compile_without_keyword() {
+        assertThat(KeywordAutomaton.compile(null, false)).isNull();
+        assertThat(KeywordAutomaton.compile(Arrays.asList("", null), false)).isNull();
+    }
+
+    @Test
+    void should_find_the_same_keywords_as_a_naive_search() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            List<String> keywords = new ArrayList<>();
+            for (int k = random.nextInt(5) + 1; k > 0; k--) {
+                keywords.add(randomText(random, random.nextInt(4) + 1));
+            }
+            String content = randomText(random, random.nextInt(20));
+
+            assertThat(KeywordAutomaton.compile(keywords, false).find(heap(content)))
+                .as("%s in %s", keywords, content)
+                .isEqualTo(keywords.stream().anyMatch(content::contains));
+        }
+    }
+
+    private static String randomText(final Random random, final int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(3)));
+        }
+        return text.toString();
+    }
+
+    private static ByteBuffer heap(final String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ByteBuffer direct(final String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+}
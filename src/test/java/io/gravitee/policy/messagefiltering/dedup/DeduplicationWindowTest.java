@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.dedup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class DeduplicationWindowTest {
+
+    private static final long WINDOW = 1000;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void should_detect_key_seen_within_window() {
+        DeduplicationWindow cut = new DeduplicationWindow(WINDOW, 100, clock::get);
+
+        assertThat(cut.seen("key")).isFalse();
+        clock.addAndGet(WINDOW / 2);
+        assertThat(cut.seen("key")).isTrue();
+        clock.addAndGet(WINDOW / 2 - 1);
+        assertThat(cut.seen("key")).isTrue();
+        assertThat(cut.seen("other")).isFalse();
+    }
+
+    @Test
+    void should_forget_key_after_window() {
+        DeduplicationWindow cut = new DeduplicationWindow(WINDOW, 100, clock::get);
+
+        assertThat(cut.seen("key")).isFalse();
+        clock.addAndGet(WINDOW + WINDOW / DeduplicationWindow.BUCKETS);
+
+        assertThat(cut.seen("key")).isFalse();
+        assertThat(cut.seen("key")).isTrue();
+    }
+
+    @Test
+    void should_never_report_unseen_key_as_duplicate_when_saturated() {
+        DeduplicationWindow cut = new DeduplicationWindow(WINDOW, 8, clock::get);
+
+        assertThat(IntStream.range(0, 10_000).mapToObj(i -> "key-" + i)).noneMatch(cut::seen);
+    }
+
+    @Test
+    void should_let_only_one_of_concurrent_duplicates_through() throws Exception {
+        DeduplicationWindow cut = new DeduplicationWindow(WINDOW, 100, clock::get);
+        AtomicInteger unseen = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        CompletableFuture<?>[] tasks = IntStream
+            .range(0, 8)
+            .mapToObj(i ->
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (!cut.seen("key")) {
+                        unseen.incrementAndGet();
+                    }
+                })
+            )
+            .toArray(CompletableFuture[]::new);
+        start.countDown();
+        CompletableFuture.allOf(tasks).get();
+
+        assertThat(unseen).hasValue(1);
+    }
+}
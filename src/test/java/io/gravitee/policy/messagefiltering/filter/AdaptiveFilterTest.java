@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.gateway.reactive.api.message.DefaultMessage;
+import io.gravitee.policy.messagefiltering.configuration.ConditionsOperator;
+import io.gravitee.policy.messagefiltering.configuration.FilterEngine;
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class AdaptiveFilterTest {
+
+    private final DefaultMessage message = DefaultMessage.builder().id("id").build();
+    private final CompiledFilter matching = CompiledFilter.compile("{#message.id == 'id'}", FilterEngine.NATIVE);
+    private final CompiledFilter notMatching = CompiledFilter.compile("{#message.id == 'other'}", FilterEngine.NATIVE);
+
+    @Test
+    void should_match_when_all_conditions_match_with_and_operator() {
+        assertThat(new AdaptiveFilter(List.of(matching, matching), ConditionsOperator.AND).evaluate(null, message)).isTrue();
+        assertThat(new AdaptiveFilter(List.of(matching, notMatching), ConditionsOperator.AND).evaluate(null, message)).isFalse();
+    }
+
+    @Test
+    void should_match_when_one_condition_matches_with_or_operator() {
+        assertThat(new AdaptiveFilter(List.of(notMatching, matching), ConditionsOperator.OR).evaluate(null, message)).isTrue();
+        assertThat(new AdaptiveFilter(List.of(notMatching, notMatching), ConditionsOperator.OR).evaluate(null, message)).isFalse();
+    }
+
+    @Test
+    void should_evaluate_rejecting_condition_first_with_and_operator() {
+        AdaptiveFilter cut = new AdaptiveFilter(List.of(matching, notMatching), ConditionsOperator.AND);
+
+        for (int i = 0; i < AdaptiveFilter.REORDER_INTERVAL; i++) {
+            assertThat(cut.evaluate(null, message)).isFalse();
+        }
+
+        assertThat(cut.order()).containsExactly(notMatching, matching);
+        assertThat(cut.evaluate(null, message)).isFalse();
+    }
+
+    @Test
+    void should_evaluate_accepting_condition_first_with_or_operator() {
+        AdaptiveFilter cut = new AdaptiveFilter(List.of(notMatching, matching), ConditionsOperator.OR);
+
+        for (int i = 0; i < AdaptiveFilter.REORDER_INTERVAL; i++) {
+            assertThat(cut.evaluate(null, message)).isTrue();
+        }
+
+        assertThat(cut.order()).containsExactly(matching, notMatching);
+        assertThat(cut.evaluate(null, message)).isTrue();
+    }
+
+    @Test
+    void should_fail_when_an_evaluated_condition_fails() {
+        CompiledFilter failing = CompiledFilter.compile("{#message.headers['X-Missing'][0] == 'value'}", FilterEngine.NATIVE);
+        AdaptiveFilter cut = new AdaptiveFilter(List.of(matching, failing), ConditionsOperator.AND);
+
+        assertThatThrownBy(() -> cut.evaluate(null, message)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_expose_expressions_in_configuration_order() {
+        AdaptiveFilter cut = new AdaptiveFilter(List.of(matching, notMatching), ConditionsOperator.AND);
+
+        assertThat(cut.getExpressions()).containsExactly("{#message.id == 'id'}", "{#message.id == 'other'}");
+    }
+}
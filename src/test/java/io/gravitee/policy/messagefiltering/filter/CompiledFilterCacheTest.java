@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CompiledFilterCacheTest {
+
+    @Test
+    void should_compile_filter_once_and_count_hits_and_misses() {
+        CompiledFilterCache cut = new CompiledFilterCache();
+
+        CompiledFilter first = cut.get("{#message.headers['foo'] != null}");
+        CompiledFilter second = cut.get("{#message.headers['foo'] != null}");
+
+        assertThat(second).isSameAs(first);
+        assertThat(cut.misses()).isEqualTo(1);
+        assertThat(cut.hits()).isEqualTo(1);
+        assertThat(cut.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_evict_least_recently_used_filter_when_cache_is_full() {
+        CompiledFilterCache cut = new CompiledFilterCache(CompiledFilter::compile, 2);
+
+        CompiledFilter first = cut.get("{#filter1}");
+        cut.get("{#filter2}");
+        cut.get("{#filter1}");
+        cut.get("{#filter3}");
+
+        assertThat(cut.size()).isEqualTo(2);
+        assertThat(cut.evictions()).isEqualTo(1);
+        assertThat(cut.get("{#filter1}")).isSameAs(first);
+        assertThat(cut.misses()).isEqualTo(3);
+    }
+
+    @Test
+    void should_support_null_filter() {
+        CompiledFilterCache cut = new CompiledFilterCache();
+
+        assertThat(cut.get(null).getExpression()).isNull();
+        assertThat(cut.get(null).getConstant()).isNull();
+        assertThat(cut.hits()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = { "true,true", "' TRUE ',true", "yes,true", "false,false", "off,false", "{true},", "{#value},", "'',", "other," })
+    void should_detect_constant_filter(final String filter, final Boolean expected) {
+        assertThat(CompiledFilter.compile(filter).getConstant()).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+        delimiter = '|',
+        quoteCharacter = '"',
+        value = {
+            "{#message.id == 'id'}|true",
+            "true|true",
+            "x {#message.id}|true",
+            "{#message.id ==}|false",
+            "{#message.id == 'id'|false",
+            "{#a ++ b}|false",
+            "{true}|false",
+            "other|false",
+        }
+    )
+    void should_validate_filter(final String filter, final boolean expected) {
+        assertThat(CompiledFilter.compile(filter).isValid()).isEqualTo(expected);
+    }
+
+    @Test
+    void should_consider_null_filter_as_valid() {
+        assertThat(CompiledFilter.compile(null).isValid()).isTrue();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.gateway.reactive.api.message.DefaultMessage;
+import io.gravitee.policy.messagefiltering.configuration.FilterEngine;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CompiledFilterTest {
+
+    private static final String NEGATED_COMPARISON = "{#message.id == 'a' && !#message.attributes['b'] == 'c'}";
+
+    @Test
+    void should_give_same_result_with_both_engines_when_negation_precedes_comparison() {
+        for (Object attribute : new Object[] { true, false, "c" }) {
+            DefaultMessage message = DefaultMessage.builder().id("a").build();
+            message.attribute("b", attribute);
+
+            assertThat(outcome(FilterEngine.NATIVE, message)).as("attribute %s", attribute).isEqualTo(outcome(FilterEngine.EL, message));
+        }
+    }
+
+    private static Object outcome(final FilterEngine engine, final DefaultMessage message) {
+        try {
+            return CompiledFilter.compile(NEGATED_COMPARISON, engine).evaluate(null, message);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+}
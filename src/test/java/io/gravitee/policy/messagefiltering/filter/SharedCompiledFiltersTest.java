@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SharedCompiledFiltersTest {
+
+    private final AtomicInteger compilations = new AtomicInteger();
+    private final Function<String, CompiledFilter> compiler = filter -> {
+        compilations.incrementAndGet();
+        return CompiledFilter.compile(filter);
+    };
+
+    @Test
+    void should_compile_filter_once_for_all_its_users() {
+        CompiledFilter first = SharedCompiledFilters.get("EL", "{#message.id == 'shared'}", compiler);
+        CompiledFilter second = SharedCompiledFilters.get("EL", "{#message.id == 'shared'}", compiler);
+
+        assertThat(second).isSameAs(first);
+        assertThat(compilations.get()).isEqualTo(1);
+    }
+
+    @Test
+    void should_not_share_filter_compiled_with_another_profile() {
+        CompiledFilter el = SharedCompiledFilters.get("EL", "{#message.id == 'profile'}", compiler);
+        CompiledFilter nativeFilter = SharedCompiledFilters.get("NATIVE", "{#message.id == 'profile'}", compiler);
+
+        assertThat(nativeFilter).isNotSameAs(el);
+        assertThat(compilations.get()).isEqualTo(2);
+    }
+
+    @Test
+    void should_support_null_filter() {
+        CompiledFilter first = SharedCompiledFilters.get("EL", null, compiler);
+
+        assertThat(SharedCompiledFilters.get("EL", null, compiler)).isSameAs(first);
+    }
+
+    @Test
+    void should_release_filter_once_it_is_no_longer_referenced() throws InterruptedException {
+        SharedCompiledFilters.get("EL", "{#message.id == 'released'}", compiler);
+
+        for (int i = 0; i < 50 && compilations.get() < 2; i++) {
+            System.gc();
+            Thread.sleep(10);
+            // The filter is compiled again once the previous one has been released
+            SharedCompiledFilters.get("EL", "{#message.id == 'released'}", compiler);
+        }
+
+        assertThat(compilations.get()).isEqualTo(2);
+    }
+
+    @Test
+    void should_keep_filter_while_a_policy_instance_caches_it() throws InterruptedException {
+        CompiledFilterCache cache = new CompiledFilterCache(filter -> SharedCompiledFilters.get("EL", filter, compiler));
+        cache.get("{#message.id == 'cached'}");
+
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(10);
+            SharedCompiledFilters.get("EL", "{#message.id == 'cached'}", compiler);
+        }
+
+        assertThat(compilations.get()).isEqualTo(1);
+        assertThat(cache.get("{#message.id == 'cached'}")).isSameAs(SharedCompiledFilters.get("EL", "{#message.id == 'cached'}", compiler));
+    }
+}
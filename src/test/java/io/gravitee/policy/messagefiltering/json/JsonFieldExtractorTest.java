@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import io.gravitee.gateway.api.buffer.Buffer;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class JsonFieldExtractorTest {
+
+    private static final String JSON =
+        "{\"tags\":[1,2,{\"x\":1}],\"type\":\"order\",\"order\":{\"id\":12,\"price\":1.5,\"paid\":true,\"items\":[{\"sku\":\"a\"},{\"sku\":\"b\"}],\"note\":null}}";
+
+    @Test
+    void should_extract_all_paths_in_one_pass() throws Exception {
+        Object[] values = extract(JSON, "$.type", "$.order.id", "$.order.price", "$.order.paid", "$.order.items[1].sku", "$['order']['note']");
+
+        assertThat(values).containsExactly("order", 12, 1.5, true, "b", null);
+    }
+
+    @Test
+    void should_extract_containers_as_marker() throws Exception {
+        Object[] values = extract(JSON, "$.order", "$.tags", "$.order.id");
+
+        assertThat(values).containsExactly(JsonFieldExtractor.CONTAINER, JsonFieldExtractor.CONTAINER, 12);
+    }
+
+    @Test
+    void should_extract_missing_leaf_as_null() throws Exception {
+        assertThat(extract(JSON, "$.order.missing")).containsExactly((Object) null);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "$.missing.id", "$.order.items[5].sku", "$.type.id", "$.tags.x" })
+    void should_not_find_path_when_intermediate_element_is_missing(final String path) throws Exception {
+        assertThat(extract(JSON, path)).containsExactly(JsonFieldExtractor.NOT_FOUND);
+    }
+
+    @Test
+    void should_not_find_path_on_empty_content() throws Exception {
+        assertThat(extract("", "$.type")).containsExactly(JsonFieldExtractor.NOT_FOUND);
+    }
+
+    @Test
+    void should_keep_last_value_of_duplicated_property() throws Exception {
+        Object[] values = extract(
+            "{\"type\":\"order\",\"order\":{\"id\":12,\"paid\":true},\"type\":\"refund\",\"order\":{\"id\":13}}",
+            "$.type",
+            "$.order.id",
+            "$.order.paid"
+        );
+
+        assertThat(values).containsExactly("refund", 13, null);
+    }
+
+    @Test
+    void should_fail_on_invalid_json_after_paths_are_found() {
+        assertThatThrownBy(() -> extract("{\"type\":\"order\", this is not json", "$.type")).isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    void should_fail_on_invalid_json_before_paths_are_found() {
+        assertThatThrownBy(() -> extract("{this is not json", "$.type")).isInstanceOf(JsonParseException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "$..sku", "$.order.*", "$.order.items[*]", "$.order.items[?(@.sku == 'a')]", "$.order.items[0:1]", "order.id" })
+    void should_not_parse_non_definite_path(final String path) {
+        assertThat(JsonFieldPath.parse(path)).isNull();
+    }
+
+    private static Object[] extract(final String json, final String... paths) throws Exception {
+        JsonFieldExtractor extractor = new JsonFieldExtractor(Arrays.stream(paths).map(JsonFieldPath::parse).collect(Collectors.toList()));
+        return extractor.extract(Buffer.buffer(json));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.membership;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.gateway.reactive.api.message.DefaultMessage;
+import io.gravitee.policy.messagefiltering.configuration.MembershipConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.MembershipKeySource;
+import io.gravitee.policy.messagefiltering.configuration.MembershipMode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class MembershipFilterTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+
+    @BeforeEach
+    void init() throws IOException {
+        file = Files.write(directory.resolve("members.txt"), List.of("allowed", "12"));
+    }
+
+    @Test
+    void should_allow_members_by_header() {
+        MembershipFilter cut = new MembershipFilter(configuration(MembershipKeySource.HEADER, "X-Tenant", MembershipMode.ALLOW));
+
+        assertThat(cut.evaluate(null, message(m -> m.headers().set("X-Tenant", "allowed")))).isTrue();
+        assertThat(cut.evaluate(null, message(m -> m.headers().set("X-Tenant", "other")))).isFalse();
+        assertThat(cut.evaluate(null, message(m -> {}))).isFalse();
+    }
+
+    @Test
+    void should_deny_members_by_attribute() {
+        MembershipFilter cut = new MembershipFilter(configuration(MembershipKeySource.ATTRIBUTE, "tenant", MembershipMode.DENY));
+
+        assertThat(cut.evaluate(null, message(m -> m.attribute("tenant", "allowed")))).isFalse();
+        assertThat(cut.evaluate(null, message(m -> m.attribute("tenant", 12)))).isFalse();
+        assertThat(cut.evaluate(null, message(m -> m.attribute("tenant", "other")))).isTrue();
+        assertThat(cut.evaluate(null, message(m -> {}))).isTrue();
+    }
+
+    @Test
+    void should_allow_members_by_metadata() {
+        MembershipFilter cut = new MembershipFilter(configuration(MembershipKeySource.METADATA, "tenant", MembershipMode.ALLOW));
+
+        assertThat(cut.evaluate(null, DefaultMessage.builder().metadata(new HashMap<>(Map.of("tenant", "allowed"))).build())).isTrue();
+        assertThat(cut.evaluate(null, DefaultMessage.builder().metadata(new HashMap<>(Map.of("tenant", "other"))).build())).isFalse();
+    }
+
+    @Test
+    void should_allow_members_by_json_path() {
+        MembershipFilter cut = new MembershipFilter(configuration(MembershipKeySource.JSON_PATH, "$.tenant.id", MembershipMode.ALLOW));
+
+        assertThat(cut.evaluate(null, message(m -> m.content(Buffer.buffer("{\"tenant\":{\"id\":12}}"))))).isTrue();
+        assertThat(cut.evaluate(null, message(m -> m.content(Buffer.buffer("{\"tenant\":{\"id\":\"allowed\"}}"))))).isTrue();
+        assertThat(cut.evaluate(null, message(m -> m.content(Buffer.buffer("{\"tenant\":{\"id\":13}}"))))).isFalse();
+        assertThat(cut.evaluate(null, message(m -> m.content(Buffer.buffer("{\"tenant\":{}}"))))).isFalse();
+    }
+
+    @Test
+    void should_reject_json_path_which_is_not_definite() {
+        MembershipConfiguration configuration = configuration(MembershipKeySource.JSON_PATH, "$..id", MembershipMode.ALLOW);
+
+        assertThatThrownBy(() -> new MembershipFilter(configuration)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private MembershipConfiguration configuration(final MembershipKeySource source, final String key, final MembershipMode mode) {
+        return new MembershipConfiguration(true, source, key, file.toString(), mode, true);
+    }
+
+    private static DefaultMessage message(final Consumer<DefaultMessage> customizer) {
+        DefaultMessage message = DefaultMessage.builder().id("id").build();
+        customizer.accept(message);
+        return message;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.membership;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class MembershipSetTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void should_contain_loaded_keys(final boolean bloomFilter) throws IOException {
+        List<String> keys = IntStream.range(0, 100_000).mapToObj(i -> "tenant-" + i).collect(Collectors.toList());
+        Path file = Files.write(directory.resolve("members.txt"), keys);
+
+        MembershipSet cut = MembershipSet.load(file, bloomFilter);
+
+        assertThat(cut.size()).isEqualTo(100_000);
+        assertThat(keys).allMatch(cut::contains);
+        assertThat(IntStream.range(100_000, 200_000).mapToObj(i -> "tenant-" + i)).noneMatch(cut::contains);
+    }
+
+    @Test
+    void should_ignore_blank_lines_comments_and_duplicates() throws IOException {
+        Path file = Files.write(directory.resolve("members.txt"), List.of("# tenants", "", "  first  ", "second", "first"));
+
+        MembershipSet cut = MembershipSet.load(file, false);
+
+        assertThat(cut.size()).isEqualTo(2);
+        assertThat(cut.contains("first")).isTrue();
+        assertThat(cut.contains(new StringBuilder("second"))).isTrue();
+        assertThat(cut.contains("# tenants")).isFalse();
+        assertThat(cut.contains("")).isFalse();
+        assertThat(cut.contains(null)).isFalse();
+    }
+
+    @Test
+    void should_not_contain_anything_when_empty() {
+        assertThat(MembershipSet.EMPTY.size()).isZero();
+        assertThat(MembershipSet.EMPTY.contains("key")).isFalse();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.membership;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SharedMembershipSetTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_share_set_of_the_same_file() throws IOException {
+        Path file = Files.write(directory.resolve("members.txt"), List.of("first"));
+
+        assertThat(SharedMembershipSet.of(file.toString(), false)).isSameAs(SharedMembershipSet.of(file.toString(), false));
+    }
+
+    @Test
+    void should_reload_set_when_file_changes() throws IOException {
+        Path file = Files.write(directory.resolve("members.txt"), List.of("first"));
+        SharedMembershipSet cut = SharedMembershipSet.of(file.toString(), false);
+        assertThat(cut.contains("first")).isTrue();
+
+        Path update = Files.write(directory.resolve("members.tmp"), List.of("second", "third"));
+        Files.move(update, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        cut.reload();
+
+        assertThat(cut.size()).isEqualTo(2);
+        assertThat(cut.contains("first")).isFalse();
+        assertThat(cut.contains("second")).isTrue();
+    }
+
+    @Test
+    void should_keep_previous_set_when_file_can_not_be_read() throws IOException {
+        Path file = Files.write(directory.resolve("members.txt"), List.of("first"));
+        SharedMembershipSet cut = SharedMembershipSet.of(file.toString(), false);
+
+        Files.delete(file);
+        cut.reload();
+
+        assertThat(cut.contains("first")).isTrue();
+    }
+
+    @Test
+    void should_be_empty_when_file_does_not_exist() {
+        SharedMembershipSet cut = SharedMembershipSet.of(directory.resolve("missing.txt").toString(), false);
+
+        assertThat(cut.size()).isZero();
+        assertThat(cut.contains("first")).isFalse();
+    }
+
+    @Test
+    void should_release_set_once_it_is_no_longer_referenced() throws IOException, InterruptedException {
+        Path file = Files.write(directory.resolve("members.txt"), List.of("first"));
+        WeakReference<SharedMembershipSet> released = new WeakReference<>(SharedMembershipSet.of(file.toString(), false));
+
+        for (int i = 0; i < 50 && released.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(released.get()).isNull();
+        assertThat(SharedMembershipSet.of(file.toString(), false).contains("first")).isTrue();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.memo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.gateway.reactive.api.message.DefaultMessage;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class MessageReadsTest {
+
+    private static final long SEED = 42;
+
+    @Test
+    void should_find_parts_of_the_message_read_by_the_filter() {
+        MessageReads cut = MessageReads.of(
+            "{#message.headers['X-Type'][0] == 'order' && #message.attributes[\"count\"] > 3 && #message.metadata['topic'] == 'it''s'" +
+            " && #jsonPath(#message.content, '$.id') == 12 && #message.id != null}"
+        );
+
+        assertThat(cut).isNotNull();
+        assertThat(cut.isId()).isTrue();
+        assertThat(cut.isContent()).isTrue();
+        assertThat(cut.getHeaders()).containsExactly("X-Type");
+        assertThat(cut.getAttributes()).containsExactly("count");
+        assertThat(cut.getMetadata()).containsExactly("topic");
+    }
+
+    @Test
+    void should_ignore_message_parts_looking_alike_in_string_literals() {
+        MessageReads cut = MessageReads.of("{#message.id == '#request @bean T(java.lang.Math)'}");
+
+        assertThat(cut).isNotNull();
+        assertThat(cut.isId()).isTrue();
+        assertThat(cut.isContent()).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "{#request.headers['foo'][0] == 'bar'}",
+            "{#context.attributes['foo'] == 'bar'}",
+            "{#message.headers[#name] == 'bar'}",
+            "{#message.error == null}",
+            "{T(java.lang.Math).random() > 0.5}",
+            "{@bean.check(#message.id)}",
+            "{new java.util.Random().nextBoolean()}",
+        }
+    )
+    void should_not_support_filter_reading_anything_else_than_the_message(final String filter) {
+        assertThat(MessageReads.of(filter)).isNull();
+    }
+
+    @Test
+    void should_hash_messages_sharing_read_parts_the_same_way() {
+        MessageReads cut = MessageReads.of("{#message.headers['X-Type'][0] == 'order' && #message.content == 'content'}");
+        DefaultMessage first = DefaultMessage.builder().id("1").content(Buffer.buffer("content")).build();
+        first.headers().set("X-Type", "order");
+        first.headers().set("X-Other", "first");
+        DefaultMessage second = DefaultMessage.builder().id("2").content(Buffer.buffer("content")).build();
+        second.headers().set("X-Type", "order");
+        second.headers().set("X-Other", "second");
+
+        assertThat(cut.hash(first, SEED)).isEqualTo(cut.hash(second, SEED)).isNotZero();
+    }
+
+    @Test
+    void should_hash_messages_differing_on_read_parts_differently() {
+        MessageReads cut = MessageReads.of("{#message.headers['X-Type'][0] == 'order' && #message.content == 'content'}");
+        DefaultMessage message = DefaultMessage.builder().id("1").content(Buffer.buffer("content")).build();
+        message.headers().set("X-Type", "order");
+        DefaultMessage otherHeader = DefaultMessage.builder().id("1").content(Buffer.buffer("content")).build();
+        otherHeader.headers().set("X-Type", "invoice");
+        DefaultMessage otherContent = DefaultMessage.builder().id("1").content(Buffer.buffer("content!")).build();
+        otherContent.headers().set("X-Type", "order");
+        DefaultMessage withoutHeader = DefaultMessage.builder().id("1").content(Buffer.buffer("content")).build();
+
+        assertThat(List.of(cut.hash(otherHeader, SEED), cut.hash(otherContent, SEED), cut.hash(withoutHeader, SEED)))
+            .doesNotContain(cut.hash(message, SEED))
+            .doesNotHaveDuplicates();
+        assertThat(cut.hash(message, SEED + 1)).isNotEqualTo(cut.hash(message, SEED));
+    }
+
+    @Test
+    void should_distinguish_attribute_types() {
+        MessageReads cut = MessageReads.of("{#message.attributes['count'] == 1}");
+        DefaultMessage number = DefaultMessage.builder().id("1").build();
+        number.attribute("count", 1);
+        DefaultMessage string = DefaultMessage.builder().id("1").build();
+        string.attribute("count", "1");
+
+        assertThat(cut.hash(number, SEED)).isNotEqualTo(cut.hash(string, SEED));
+    }
+
+    @Test
+    void should_not_hash_message_with_non_scalar_metadata() {
+        MessageReads cut = MessageReads.of("{#message.metadata['key'] != null}");
+        Map<String, Object> metadata = new HashMap<>(Map.of("key", List.of("value")));
+        DefaultMessage message = DefaultMessage.builder().id("1").metadata(metadata).build();
+
+        assertThat(cut.hash(message, SEED)).isZero();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.memo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.policy.messagefiltering.metrics.MemoizationMetrics;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ResultCacheTest {
+
+    private final MemoizationMetrics metrics = new MemoizationMetrics();
+
+    @Test
+    void should_memoize_results_and_report_hit_rate() {
+        ResultCache cut = new ResultCache(100, metrics);
+
+        assertThat(cut.get(1)).isNull();
+        cut.put(1, true);
+        cut.put(2, false);
+
+        assertThat(cut.get(1)).isTrue();
+        assertThat(cut.get(2)).isFalse();
+        assertThat(cut.get(1)).isTrue();
+        assertThat(metrics.getHits()).isEqualTo(3);
+        assertThat(metrics.getMisses()).isEqualTo(1);
+        assertThat(metrics.getHitRate()).isEqualTo(0.75);
+    }
+
+    @Test
+    void should_evict_least_recently_used_results_when_full() {
+        ResultCache cut = new ResultCache(16, metrics);
+        // Hashes sharing their 4 highest bits fall into the same stripe, holding a single entry
+        long first = 1;
+        long second = 2;
+        long third = 3;
+
+        cut.put(first, true);
+        cut.put(second, true);
+        cut.put(third, true);
+
+        assertThat(cut.size()).isEqualTo(1);
+        assertThat(cut.get(third)).isTrue();
+        assertThat(cut.get(first)).isNull();
+    }
+
+    @Test
+    void should_bound_the_number_of_results() {
+        ResultCache cut = new ResultCache(1000, metrics);
+
+        for (long hash = 1; hash <= 100_000; hash++) {
+            cut.put(hash * 0x9e3779b97f4a7c15L, true);
+        }
+
+        assertThat(cut.size()).isLessThanOrEqualTo(1008);
+    }
+}
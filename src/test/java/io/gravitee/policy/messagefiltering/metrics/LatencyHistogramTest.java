@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class LatencyHistogramTest {
+
+    @ParameterizedTest
+    @ValueSource(longs = { 0, 1, 15, 16, 17, 100, 1_000, 123_456, 10_000_000_000L, Long.MAX_VALUE })
+    void should_keep_recorded_value_within_bucket_precision(final long value) {
+        int index = LatencyHistogram.indexOf(value);
+        long upperBound = LatencyHistogram.upperBoundOf(index);
+
+        assertThat(upperBound).isGreaterThanOrEqualTo(value);
+        assertThat(upperBound - value).isLessThanOrEqualTo(value / 16);
+    }
+
+    @Test
+    void should_compute_percentiles() {
+        LatencyHistogram cut = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            cut.record(i * 1_000L);
+        }
+
+        assertThat(cut.count()).isEqualTo(100);
+        assertThat(cut.mean()).isEqualTo(50_500);
+        assertThat(cut.percentile(50)).isBetween(50_000L, 53_000L);
+        assertThat(cut.percentile(99)).isBetween(99_000L, 104_000L);
+        assertThat(cut.percentile(100)).isBetween(100_000L, 104_000L);
+    }
+
+    @Test
+    void should_return_zero_when_empty() {
+        LatencyHistogram cut = new LatencyHistogram();
+
+        assertThat(cut.count()).isZero();
+        assertThat(cut.mean()).isZero();
+        assertThat(cut.percentile(99)).isZero();
+    }
+}
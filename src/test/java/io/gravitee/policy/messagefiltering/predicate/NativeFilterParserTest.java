@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.gateway.api.buffer.Buffer;
+import io.gravitee.gateway.reactive.api.message.DefaultMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class NativeFilterParserTest {
+
+    private DefaultMessage message;
+
+    @BeforeEach
+    void init() {
+        message = DefaultMessage.builder().id("id").content(Buffer.buffer("{\"type\":\"order\",\"order\":{\"id\":12,\"note\":null}}")).build();
+        message.headers().add("X-Type", "order");
+        message.headers().add("X-Multi", "first");
+        message.headers().add("X-Multi", "second");
+        message.attribute("count", 5);
+        message.attribute("name", "value");
+        message.attribute("disabled", false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "{#message.headers['X-Type'][0] == 'order'}",
+            "{#message.headers['X-Missing'] == null}",
+            "{#message.headers['X-Multi'][1] == 'second' && #message.attributes['count'] > 3}",
+            "{#message.attributes['count'] >= 5L and not (#message.id != 'id')}",
+            "{(!(#message.attributes['name'] == 'other')) || false}",
+            "{#message.attributes['count'] == 5.0}",
+            "{ #message.id=='id' }",
+            "{#message.attributes['name'] eq \"value\"}",
+            "{#jsonPath(#message.content, '$.type') == 'order'}",
+            "{#jsonPath(#message.content, '$.order.id') > 10 && #jsonPath(#message.content, '$.order.note') == null}",
+            "{#jsonPath(#message.content, '$.order.missing') == null}",
+            "{#message.id == 'id' && !#message.attributes['disabled']}",
+            "{#message.id == 'id' && !!(#message.attributes['count'] == 5)}",
+        }
+    )
+    void should_match_message(final String filter) {
+        assertThat(NativeFilterParser.parse(filter).test(message)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "{#message.headers['X-Type'] == 'order'}",
+            "{#message.headers['X-Type'][0] != 'order'}",
+            "{#message.attributes['count'] < 5}",
+            "{#message.id == 'it''s'}",
+            "{#message.attributes['missing'] != null}",
+            "{#jsonPath(#message.content, '$.order') == 'order'}",
+        }
+    )
+    void should_not_match_message(final String filter) {
+        assertThat(NativeFilterParser.parse(filter).test(message)).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "#message.id == 'id'",
+            "{#message.id == 'id'} && {true}",
+            "{#message.headers.foo == 'bar'}",
+            "{(#message.id) == 'id'}",
+            "{#message.content == 'content'}",
+            "{#message.correlationId == 'id'}",
+            "{#request.headers['foo'][0] == 'bar'}",
+            "{#message.id == 'id' |}",
+            "{#message.id matches 'i.*'}",
+            "{!(#message.id == 'id')}",
+            "{#message.id == 'a' && !#message.attributes['b'] == 'c'}",
+            "{#message.id == 'a' && not (#message.id == 'id') == false}",
+            "{true}",
+            "{#jsonPath(#message.content, '$..id') == 12}",
+            "{#jsonPath(#request.content, '$.id') == 12}",
+        }
+    )
+    void should_not_support_filter(final String filter) {
+        assertThat(NativeFilterParser.parse(filter)).isNull();
+    }
+
+    @Test
+    void should_not_support_null_filter() {
+        assertThat(NativeFilterParser.parse(null)).isNull();
+    }
+
+    @Test
+    void should_fail_when_indexing_a_missing_header() {
+        MessagePredicate predicate = NativeFilterParser.parse("{#message.headers['X-Missing'][0] == 'value'}");
+
+        assertThatThrownBy(() -> predicate.test(message)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_fail_when_json_path_is_not_found() {
+        MessagePredicate predicate = NativeFilterParser.parse("{#jsonPath(#message.content, '$.missing.id') == 12}");
+
+        assertThatThrownBy(() -> predicate.test(message)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_not_parse_content_when_condition_is_resolved_before_json_path() {
+        message.content(Buffer.buffer("not a json"));
+        MessagePredicate predicate = NativeFilterParser.parse("{#message.id == 'other' && #jsonPath(#message.content, '$.type') == 'order'}");
+
+        assertThat(predicate.test(message)).isFalse();
+    }
+
+    @Test
+    void should_fail_when_condition_is_not_a_boolean() {
+        MessagePredicate predicate = NativeFilterParser.parse("{#message.id}");
+
+        assertThatThrownBy(() -> predicate.test(message)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
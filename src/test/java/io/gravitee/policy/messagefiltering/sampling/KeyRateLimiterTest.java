@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.sampling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.gateway.reactive.api.message.DefaultMessage;
+import io.gravitee.policy.messagefiltering.configuration.MessageKeySource;
+import io.gravitee.policy.messagefiltering.key.MessageKeyResolver;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class KeyRateLimiterTest {
+
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final MessageKeyResolver keyResolver = new MessageKeyResolver(MessageKeySource.HEADER, "X-Key");
+
+    @Test
+    void should_keep_burst_then_rate_of_messages_per_key() {
+        KeyRateLimiter cut = new KeyRateLimiter(keyResolver, 2, 3, 100, IDLE_TIMEOUT, clock::get);
+
+        assertThat(cut.evaluate(null, message("a"))).isTrue();
+        assertThat(cut.evaluate(null, message("a"))).isTrue();
+        assertThat(cut.evaluate(null, message("a"))).isTrue();
+        assertThat(cut.evaluate(null, message("a"))).isFalse();
+        assertThat(cut.evaluate(null, message("b"))).isTrue();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(cut.evaluate(null, message("a"))).isTrue();
+        assertThat(cut.evaluate(null, message("a"))).isFalse();
+    }
+
+    @Test
+    void should_not_exceed_burst_after_a_long_pause() {
+        KeyRateLimiter cut = new KeyRateLimiter(keyResolver, 100, 2, 100, IDLE_TIMEOUT * 10, clock::get);
+        cut.evaluate(null, message("a"));
+
+        clock.addAndGet(IDLE_TIMEOUT);
+
+        assertThat(cut.evaluate(null, message("a"))).isTrue();
+        assertThat(cut.evaluate(null, message("a"))).isTrue();
+        assertThat(cut.evaluate(null, message("a"))).isFalse();
+    }
+
+    @Test
+    void should_keep_messages_without_key() {
+        KeyRateLimiter cut = new KeyRateLimiter(keyResolver, 1, 1, 100, IDLE_TIMEOUT, clock::get);
+
+        assertThat(cut.evaluate(null, DefaultMessage.builder().id("id").build())).isTrue();
+        assertThat(cut.evaluate(null, DefaultMessage.builder().id("id").build())).isTrue();
+        assertThat(cut.size()).isZero();
+    }
+
+    @Test
+    void should_evict_idle_keys() {
+        KeyRateLimiter cut = new KeyRateLimiter(keyResolver, 1, 1, 100, IDLE_TIMEOUT, clock::get);
+        for (int i = 0; i < 50; i++) {
+            cut.evaluate(null, message("key-" + i));
+        }
+
+        clock.addAndGet(IDLE_TIMEOUT + 1);
+        for (int i = 0; i < 50; i++) {
+            cut.evaluate(null, message("other-" + i));
+        }
+
+        assertThat(cut.size()).isEqualTo(50);
+    }
+
+    @Test
+    void should_bound_the_number_of_tracked_keys() {
+        KeyRateLimiter cut = new KeyRateLimiter(keyResolver, 1, 1, 160, IDLE_TIMEOUT, clock::get);
+
+        for (int i = 0; i < 10_000; i++) {
+            cut.evaluate(null, message("key-" + i));
+        }
+
+        assertThat(cut.size()).isLessThanOrEqualTo(160);
+    }
+
+    private static DefaultMessage message(final String key) {
+        DefaultMessage message = DefaultMessage.builder().id("id").build();
+        message.headers().set("X-Key", key);
+        return message;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.messagefiltering.sampling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.gateway.reactive.api.message.DefaultMessage;
+import io.gravitee.policy.messagefiltering.configuration.SamplingConfiguration;
+import io.gravitee.policy.messagefiltering.configuration.SamplingMode;
+import io.gravitee.policy.messagefiltering.filter.MessageFilter;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class SamplersTest {
+
+    private final DefaultMessage message = DefaultMessage.builder().id("id").build();
+
+    @Test
+    void should_keep_one_message_out_of_n() {
+        SamplingConfiguration configuration = new SamplingConfiguration();
+        configuration.setMode(SamplingMode.ONE_IN_N);
+        configuration.setN(3);
+        MessageFilter cut = Samplers.of(configuration);
+
+        assertThat(IntStream.range(0, 9).mapToObj(i -> cut.evaluate(null, message)))
+            .containsExactly(true, false, false, true, false, false, true, false, false);
+    }
+
+    @Test
+    void should_keep_messages_with_probability() {
+        SamplingConfiguration configuration = new SamplingConfiguration();
+        configuration.setMode(SamplingMode.PROBABILITY);
+        configuration.setProbability(0.25);
+        MessageFilter cut = Samplers.of(configuration);
+
+        long kept = IntStream.range(0, 100_000).filter(i -> cut.evaluate(null, message)).count();
+
+        assertThat(kept).isBetween(23_000L, 27_000L);
+    }
+
+    @Test
+    void should_create_rate_limiter_per_key() {
+        SamplingConfiguration configuration = new SamplingConfiguration();
+        configuration.setMode(SamplingMode.RATE_PER_KEY);
+
+        assertThat(Samplers.of(configuration)).isInstanceOf(KeyRateLimiter.class);
+    }
+}